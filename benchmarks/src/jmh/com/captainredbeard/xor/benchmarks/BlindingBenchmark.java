@@ -0,0 +1,59 @@
+package com.captainredbeard.xor.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigInteger;
+import java.security.SecureRandom;
+
+/**
+ * Blinded CRT decoding with cached, squared blinding pairs,
+ * against unblinded CRT and against blinding with a fresh
+ * random pair on every call.
+ *
+ * @author captain-redbeard
+ * @version 1.00
+ * @since 17/10/26
+ */
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class BlindingBenchmark {
+
+    @Benchmark
+    public BigInteger unblinded(KeyState state) {
+        return state.privateKey.decodeCRT(state.rawCipher);
+    }
+
+    @Benchmark
+    public BigInteger blinded(KeyState state) {
+        return state.privateKey.decodeCRTBlinded(state.rawCipher);
+    }
+
+    @Benchmark
+    public BigInteger blindedFresh(KeyState state, Fresh fresh) {
+        BigInteger n = state.privateKey.modulus;
+        BigInteger r = new BigInteger(n.bitLength() - 1, fresh.random);
+        BigInteger x = state.rawCipher.multiply(r.modPow(state.privateKey.publicExponent, n)).mod(n);
+
+        return state.privateKey.decodeCRT(x).multiply(r.modInverse(n)).mod(n);
+    }
+
+    /**
+     * Random for fresh blinding pairs.
+     */
+    @State(Scope.Thread)
+    public static class Fresh {
+        public SecureRandom random;
+
+        @Setup
+        public void setup() {
+            random = new SecureRandom();
+        }
+    }
+}
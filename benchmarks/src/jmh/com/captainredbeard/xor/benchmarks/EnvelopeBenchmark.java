@@ -0,0 +1,103 @@
+package com.captainredbeard.xor.benchmarks;
+
+import com.captainredbeard.xor.Envelope;
+import com.captainredbeard.xor.Keypair;
+import com.captainredbeard.xor.RSA;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+/**
+ * Envelope encryption and decryption of a payload, through streams
+ * and through memory mapped FileChannels.
+ * Throughput in MB/s is payloadMB * ops/s.
+ *
+ * @author captain-redbeard
+ * @version 1.00
+ * @since 17/10/26
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class EnvelopeBenchmark {
+    @Param({"1", "64"})
+    public int payloadMB;
+
+    @Param({"65536"})
+    public int chunkSize;
+
+    private Keypair keypair;
+    private Envelope envelope;
+    private byte[] payload;
+    private byte[] sealed;
+    private Path plainFile;
+    private Path sealedFile;
+    private Path outFile;
+
+    @Setup
+    public void setup() throws Exception {
+        keypair = new RSA().generateKeypair(2048);
+        envelope = new Envelope(null, chunkSize);
+        payload = new byte[payloadMB * 1024 * 1024];
+        new Random(1).nextBytes(payload);
+
+        plainFile = Files.createTempFile("envelope", ".bin");
+        sealedFile = Files.createTempFile("envelope", ".xe");
+        outFile = Files.createTempFile("envelope", ".out");
+        Files.write(plainFile, payload);
+
+        try (OutputStream out = Files.newOutputStream(sealedFile)) {
+            envelope.encrypt(keypair.getPublicKey(), new ByteArrayInputStream(payload), out);
+        }
+
+        sealed = Files.readAllBytes(sealedFile);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        Files.deleteIfExists(plainFile);
+        Files.deleteIfExists(sealedFile);
+        Files.deleteIfExists(outFile);
+    }
+
+    @Benchmark
+    public long encryptStream() throws Exception {
+        return envelope.encrypt(keypair.getPublicKey(), new ByteArrayInputStream(payload), OutputStream.nullOutputStream());
+    }
+
+    @Benchmark
+    public long decryptStream() throws Exception {
+        return envelope.decrypt(keypair.getPrivateKey(), new ByteArrayInputStream(sealed), OutputStream.nullOutputStream());
+    }
+
+    @Benchmark
+    public long encryptChannel() throws Exception {
+        try (FileChannel in = FileChannel.open(plainFile, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(outFile, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            return envelope.encrypt(keypair.getPublicKey(), in, out);
+        }
+    }
+
+    @Benchmark
+    public long decryptChannel() throws Exception {
+        try (FileChannel in = FileChannel.open(sealedFile, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(outFile, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            return envelope.decrypt(keypair.getPrivateKey(), in, out);
+        }
+    }
+}
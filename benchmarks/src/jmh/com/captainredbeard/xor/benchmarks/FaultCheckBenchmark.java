@@ -0,0 +1,49 @@
+package com.captainredbeard.xor.benchmarks;
+
+import com.captainredbeard.xor.Keypair;
+import com.captainredbeard.xor.PrivateKey;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigInteger;
+
+/**
+ * Overhead of the verify after sign fault check, per key length.
+ *
+ * @author captain-redbeard
+ * @version 1.00
+ * @since 17/10/26
+ */
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class FaultCheckBenchmark {
+
+    @Benchmark
+    public BigInteger sign(KeyState state) {
+        return state.privateKey.sign(state.message);
+    }
+
+    @Benchmark
+    public BigInteger signChecked(KeyState state, Checked checked) {
+        return checked.privateKey.sign(state.message);
+    }
+
+    /**
+     * Copy of the key with the fault check enabled.
+     */
+    @State(Scope.Benchmark)
+    public static class Checked {
+        public PrivateKey privateKey;
+
+        @Setup
+        public void setup(KeyState state) {
+            privateKey = new Keypair(state.privateKey).getPrivateKey().setFaultCheck(true);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.captainredbeard.xor.benchmarks;
+
+import com.captainredbeard.xor.KeyCache;
+import com.captainredbeard.xor.KeyStoreFile;
+import com.captainredbeard.xor.Keypair;
+import com.captainredbeard.xor.PrivateKey;
+import com.captainredbeard.xor.RSA;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Key handles from a KeyCache against a keystore lookup per request,
+ * for the lookup alone and for a lookup and decrypt. The cache holds
+ * every id, so after the warm up all gets are hits.
+ *
+ * @author captain-redbeard
+ * @version 1.00
+ * @since 17/10/26
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class KeyCacheBenchmark {
+    private static final int DISTINCT_KEYS = 4;
+
+    @Param({"2048"})
+    public int keyLength;
+
+    @Param({"1000"})
+    public int keys;
+
+    private String[] ids;
+    private byte[][] ciphers;
+    private Path path;
+    private KeyStoreFile keyStore;
+    private KeyCache cache;
+
+    @Setup
+    public void setup() throws Exception {
+        RSA rsa = new RSA();
+        Map<String, Keypair> entries = new LinkedHashMap<>();
+        Keypair[] keypairs = new Keypair[DISTINCT_KEYS];
+        ciphers = new byte[DISTINCT_KEYS][];
+
+        for (int i = 0; i < keypairs.length; i++) {
+            keypairs[i] = rsa.generateKeypair(keyLength);
+            ciphers[i] = keypairs[i].getPublicKey().encrypt("Hello World!".getBytes());
+        }
+
+        ids = new String[keys];
+
+        for (int i = 0; i < keys; i++) {
+            ids[i] = "tenant-" + i;
+            entries.put(ids[i], keypairs[i % keypairs.length]);
+        }
+
+        path = Files.createTempFile("keycache", ".xks");
+        KeyStoreFile.write(path, entries);
+        keyStore = KeyStoreFile.open(path, rsa.getOAEP());
+        cache = new KeyCache(keyStore, keys);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        keyStore.close();
+        Files.deleteIfExists(path);
+    }
+
+    @Benchmark
+    public PrivateKey cacheGet() throws Exception {
+        return cache.getPrivateKey(ids[ThreadLocalRandom.current().nextInt(keys)]);
+    }
+
+    @Benchmark
+    public PrivateKey keyStoreGet() throws Exception {
+        return keyStore.getPrivateKey(ids[ThreadLocalRandom.current().nextInt(keys)]);
+    }
+
+    @Benchmark
+    public byte[] cacheDecrypt() throws Exception {
+        int i = ThreadLocalRandom.current().nextInt(keys);
+        return cache.getPrivateKey(ids[i]).decrypt(ciphers[i % DISTINCT_KEYS]);
+    }
+
+    @Benchmark
+    public byte[] keyStoreDecrypt() throws Exception {
+        int i = ThreadLocalRandom.current().nextInt(keys);
+        return keyStore.getPrivateKey(ids[i]).decrypt(ciphers[i % DISTINCT_KEYS]);
+    }
+}
@@ -0,0 +1,91 @@
+package com.captainredbeard.xor.benchmarks;
+
+import com.captainredbeard.xor.KeyEncoding;
+import com.captainredbeard.xor.Keypair;
+import com.captainredbeard.xor.PrivateKey;
+import com.captainredbeard.xor.PublicKey;
+import com.captainredbeard.xor.RSA;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.security.KeyFactory;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.util.List;
+
+/**
+ * PKCS#8 and X.509 encoding and decoding, against the JDK KeyFactory,
+ * and loading a PEM bundle of private keys.
+ *
+ * @author captain-redbeard
+ * @version 1.00
+ * @since 17/10/26
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class KeyEncodingBenchmark {
+    @Param({"2048", "4096"})
+    public int keyLength;
+
+    @Param({"100"})
+    public int bundleSize;
+
+    private RSA rsa;
+    private Keypair keypair;
+    private byte[] privateKeyInfo;
+    private byte[] subjectPublicKeyInfo;
+    private String bundle;
+    private KeyFactory keyFactory;
+
+    @Setup
+    public void setup() throws Exception {
+        rsa = new RSA();
+        keypair = rsa.generateKeypair(keyLength);
+        privateKeyInfo = KeyEncoding.encodePrivateKeyInfo(keypair.getPrivateKey());
+        subjectPublicKeyInfo = KeyEncoding.encodeSubjectPublicKeyInfo(keypair.getPublicKey());
+        keyFactory = KeyFactory.getInstance("RSA");
+
+        //The same key repeated, parsing cost does not depend on the key
+        String pem = KeyEncoding.toPEM(keypair.getPrivateKey());
+        StringBuilder builder = new StringBuilder(pem.length() * bundleSize);
+
+        for (int i = 0; i < bundleSize; i++) {
+            builder.append(pem);
+        }
+
+        bundle = builder.toString();
+    }
+
+    @Benchmark
+    public byte[] encodePrivateKeyInfo() {
+        return KeyEncoding.encodePrivateKeyInfo(keypair.getPrivateKey());
+    }
+
+    @Benchmark
+    public PrivateKey decodePrivateKeyInfo() throws Exception {
+        return KeyEncoding.decodePrivateKeyInfo(ByteBuffer.wrap(privateKeyInfo), rsa.getOAEP());
+    }
+
+    @Benchmark
+    public java.security.PrivateKey decodePrivateKeyInfoJdk() throws Exception {
+        return keyFactory.generatePrivate(new PKCS8EncodedKeySpec(privateKeyInfo));
+    }
+
+    @Benchmark
+    public PublicKey decodeSubjectPublicKeyInfo() throws Exception {
+        return KeyEncoding.decodeSubjectPublicKeyInfo(ByteBuffer.wrap(subjectPublicKeyInfo), rsa.getOAEP());
+    }
+
+    @Benchmark
+    public List<PrivateKey> decodeBundle() throws Exception {
+        return KeyEncoding.decodePrivateKeys(bundle, rsa.getOAEP());
+    }
+}
@@ -0,0 +1,68 @@
+package com.captainredbeard.xor.benchmarks;
+
+import com.captainredbeard.xor.Keypair;
+import com.captainredbeard.xor.PrivateKey;
+import com.captainredbeard.xor.PublicKey;
+import com.captainredbeard.xor.RSA;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.math.BigInteger;
+
+/**
+ * Shared keypair, message and cipher text for each key length.
+ *
+ * @author captain-redbeard
+ * @version 1.00
+ * @since 17/10/26
+ */
+@State(Scope.Benchmark)
+public class KeyState {
+    public static final int BATCH_SIZE = 64;
+
+    @Param({"2048", "3072", "4096"})
+    public int keyLength;
+
+    public RSA rsa;
+    public PublicKey publicKey;
+    public PrivateKey privateKey;
+    public int keyLen;
+    public byte[] data;
+    public byte[] padded;
+    public BigInteger message;
+    public BigInteger cipher;
+    public BigInteger rawCipher;
+    public BigInteger signature;
+    public BigInteger[] cipherBatch;
+    public byte[] cipherBytes;
+    public byte[] cipherOut;
+    public byte[] messageOut;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        rsa = new RSA();
+        Keypair keypair = rsa.generateKeypair(keyLength);
+        publicKey = keypair.getPublicKey();
+        privateKey = keypair.getPrivateKey();
+        keyLen = (int) Math.ceil(publicKey.modulus.bitLength() / 8);
+
+        data = "Hello World! ABCDEFGHIJKLMNOPQRSTUVWXYZ 0123456789".getBytes();
+        padded = rsa.addPadding(data, keyLen);
+        message = new BigInteger(data);
+        cipher = publicKey.encode(message);
+        rawCipher = publicKey.encodeRaw(new BigInteger(padded));
+        signature = privateKey.sign(message);
+
+        cipherBytes = publicKey.encrypt(data);
+        cipherOut = new byte[publicKey.getModulusLength()];
+        messageOut = new byte[keyLen];
+
+        cipherBatch = new BigInteger[BATCH_SIZE];
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            cipherBatch[i] = publicKey.encode(message);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.captainredbeard.xor.benchmarks;
+
+import com.captainredbeard.xor.KeySerializer;
+import com.captainredbeard.xor.KeyStoreFile;
+import com.captainredbeard.xor.Keypair;
+import com.captainredbeard.xor.PrivateKey;
+import com.captainredbeard.xor.PublicKey;
+import com.captainredbeard.xor.RSA;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Key serialization, keystore writes and keystore lookups.
+ * The keystore holds the given number of ids over a few reused keys,
+ * generating thousands of keys would dominate the setup.
+ *
+ * @author captain-redbeard
+ * @version 1.00
+ * @since 17/10/26
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class KeyStoreBenchmark {
+    private static final int DISTINCT_KEYS = 4;
+
+    @Param({"2048", "4096"})
+    public int keyLength;
+
+    @Param({"1000"})
+    public int keys;
+
+    private RSA rsa;
+    private Keypair keypair;
+    private byte[] encoded;
+    private Map<String, Keypair> entries;
+    private Path path;
+    private Path writePath;
+    private KeyStoreFile keyStore;
+
+    @Setup
+    public void setup() throws Exception {
+        rsa = new RSA();
+        Keypair[] keypairs = new Keypair[DISTINCT_KEYS];
+
+        for (int i = 0; i < keypairs.length; i++) {
+            keypairs[i] = rsa.generateKeypair(keyLength);
+        }
+
+        keypair = keypairs[0];
+        encoded = KeySerializer.encode(keypair);
+        entries = new LinkedHashMap<>();
+
+        for (int i = 0; i < keys; i++) {
+            entries.put("key-" + i, keypairs[i % keypairs.length]);
+        }
+
+        path = Files.createTempFile("keystore", ".xks");
+        writePath = Files.createTempFile("keystore", ".xks");
+        KeyStoreFile.write(path, entries);
+        keyStore = KeyStoreFile.open(path, rsa.getOAEP());
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        keyStore.close();
+        Files.deleteIfExists(path);
+        Files.deleteIfExists(writePath);
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        return KeySerializer.encode(keypair);
+    }
+
+    @Benchmark
+    public PrivateKey decode() throws Exception {
+        return KeySerializer.decodePrivateKey(ByteBuffer.wrap(encoded), rsa.getOAEP());
+    }
+
+    @Benchmark
+    public Path write() throws Exception {
+        KeyStoreFile.write(writePath, entries);
+        return writePath;
+    }
+
+    @Benchmark
+    public KeyStoreFile open() throws Exception {
+        try (KeyStoreFile opened = KeyStoreFile.open(path, rsa.getOAEP())) {
+            return opened;
+        }
+    }
+
+    @Benchmark
+    public PrivateKey lookupPrivateKey() throws Exception {
+        return keyStore.getPrivateKey("key-" + ThreadLocalRandom.current().nextInt(keys));
+    }
+
+    @Benchmark
+    public PublicKey lookupPublicKey() throws Exception {
+        return keyStore.getPublicKey("key-" + ThreadLocalRandom.current().nextInt(keys));
+    }
+}
@@ -0,0 +1,53 @@
+package com.captainredbeard.xor.benchmarks;
+
+import com.captainredbeard.xor.Keypair;
+import com.captainredbeard.xor.RSA;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.security.InvalidKeyException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Key generation benchmarks.
+ * Prime search is slow, so iterations are longer and fewer.
+ *
+ * @author captain-redbeard
+ * @version 1.00
+ * @since 17/10/26
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 5, time = 10)
+public class KeygenBenchmark {
+    @Param({"2048", "3072", "4096"})
+    public int keyLength;
+
+    @Param({"1", "2"})
+    public int searchesPerPrime;
+
+    private RSA rsa;
+
+    @Setup
+    public void setup() {
+        rsa = new RSA();
+    }
+
+    @Benchmark
+    public Keypair generateKeypair() throws InvalidKeyException {
+        return rsa.generateKeypair(keyLength);
+    }
+
+    @Benchmark
+    public Keypair generateKeypairAsync() throws InterruptedException, ExecutionException {
+        return rsa.generateKeypairAsync(keyLength, ForkJoinPool.commonPool(), searchesPerPrime).get();
+    }
+}
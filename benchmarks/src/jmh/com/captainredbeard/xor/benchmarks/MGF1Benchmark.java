@@ -0,0 +1,67 @@
+package com.captainredbeard.xor.benchmarks;
+
+import com.captainredbeard.xor.MGF1;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * MGF1 benchmarks.
+ * Each invocation produces MASK_LENGTH bytes of mask in chunks of chunkLength,
+ * so the reported score is the cost per output byte.
+ *
+ * @author captain-redbeard
+ * @version 1.00
+ * @since 17/10/26
+ */
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class MGF1Benchmark {
+    private static final int MASK_LENGTH = 4096;
+
+    @Param({"1", "64", "191", "4096"})
+    public int chunkLength;
+
+    private MGF1 mgf;
+    private byte[] seed;
+    private byte[] target;
+
+    @Setup
+    public void setup() {
+        mgf = new MGF1(64);
+        seed = new byte[64];
+        target = new byte[MASK_LENGTH];
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MASK_LENGTH)
+    public byte[] xor() {
+        mgf.init(seed, 0, seed.length);
+
+        for (int off = 0; off < MASK_LENGTH; off += chunkLength) {
+            mgf.xor(target, off, Math.min(chunkLength, MASK_LENGTH - off));
+        }
+
+        return target;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MASK_LENGTH)
+    public byte[] generate() {
+        mgf.init(seed, 0, seed.length);
+
+        for (int off = 0; off < MASK_LENGTH; off += chunkLength) {
+            mgf.generate(target, off, Math.min(chunkLength, MASK_LENGTH - off));
+        }
+
+        return target;
+    }
+}
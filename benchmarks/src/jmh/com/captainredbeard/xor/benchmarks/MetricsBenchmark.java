@@ -0,0 +1,77 @@
+package com.captainredbeard.xor.benchmarks;
+
+import com.captainredbeard.xor.LatencyHistogram;
+import com.captainredbeard.xor.Metrics;
+import com.captainredbeard.xor.OctetString;
+import com.captainredbeard.xor.PublicKey;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigInteger;
+
+/**
+ * Overhead of operation metrics on the cheapest instrumented operations.
+ * encodeUninstrumented is encode without the metrics checks,
+ * encode has metrics disabled and encodeMetrics enabled.
+ *
+ * @author captain-redbeard
+ * @version 1.00
+ * @since 17/10/26
+ */
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class MetricsBenchmark {
+
+    @Benchmark
+    public BigInteger encodeUninstrumented(KeyState state) {
+        return state.publicKey.encodeRaw(
+                OctetString.os2ip(state.rsa.addPadding(state.message.toByteArray(), state.keyLen)));
+    }
+
+    @Benchmark
+    public BigInteger encode(KeyState state) {
+        return state.publicKey.encode(state.message);
+    }
+
+    @Benchmark
+    public BigInteger encodeMetrics(KeyState state, Instrumented instrumented) {
+        return instrumented.publicKey.encode(state.message);
+    }
+
+    @Benchmark
+    public boolean verify(KeyState state) {
+        return state.publicKey.verify(state.signature, state.message);
+    }
+
+    @Benchmark
+    public boolean verifyMetrics(KeyState state, Instrumented instrumented) {
+        return instrumented.publicKey.verify(state.signature, state.message);
+    }
+
+    @Benchmark
+    public void record(Instrumented instrumented) {
+        instrumented.histogram.record(System.nanoTime() & 0xFFFFF);
+    }
+
+    /**
+     * Copy of the public key with metrics enabled.
+     */
+    @State(Scope.Benchmark)
+    public static class Instrumented {
+        public PublicKey publicKey;
+        public LatencyHistogram histogram;
+
+        @Setup
+        public void setup(KeyState state) {
+            publicKey = new PublicKey(state.publicKey.modulus, state.publicKey.publicExponent, state.rsa.getOAEP())
+                    .setMetrics(new Metrics());
+            histogram = new LatencyHistogram();
+        }
+    }
+}
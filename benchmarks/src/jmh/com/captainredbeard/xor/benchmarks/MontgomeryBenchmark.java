@@ -0,0 +1,55 @@
+package com.captainredbeard.xor.benchmarks;
+
+import com.captainredbeard.xor.Montgomery;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigInteger;
+import java.security.SecureRandom;
+
+/**
+ * Montgomery exponentiation against BigInteger.modPow,
+ * at the prime sizes of 2048, 3072 and 4096-bit keys.
+ *
+ * @author captain-redbeard
+ * @version 1.00
+ * @since 17/10/26
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class MontgomeryBenchmark {
+    @Param({"1024", "1536", "2048"})
+    public int primeLength;
+
+    private BigInteger prime;
+    private BigInteger exponent;
+    private BigInteger base;
+    private Montgomery montgomery;
+
+    @Setup
+    public void setup() {
+        SecureRandom random = new SecureRandom();
+        prime = BigInteger.probablePrime(primeLength, random);
+        exponent = new BigInteger(primeLength, random).mod(prime.subtract(BigInteger.ONE));
+        base = new BigInteger(2 * primeLength, random);
+        montgomery = new Montgomery(prime);
+    }
+
+    @Benchmark
+    public BigInteger bigIntegerModPow() {
+        return base.modPow(exponent, prime);
+    }
+
+    @Benchmark
+    public BigInteger montgomeryModPow() {
+        return montgomery.modPow(base, exponent);
+    }
+}
@@ -0,0 +1,58 @@
+package com.captainredbeard.xor.benchmarks;
+
+import com.captainredbeard.xor.Keypair;
+import com.captainredbeard.xor.PrivateKey;
+import com.captainredbeard.xor.RSA;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigInteger;
+
+/**
+ * Multi-prime CRT decoding and signing against two primes.
+ * Four primes need a 4096-bit key, run with -p keyLength=4096 -p primes=4.
+ *
+ * @author captain-redbeard
+ * @version 1.00
+ * @since 17/10/26
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class MultiPrimeBenchmark {
+    @Param({"3072", "4096"})
+    public int keyLength;
+
+    @Param({"2", "3"})
+    public int primes;
+
+    private PrivateKey privateKey;
+    private BigInteger message;
+    private BigInteger cipher;
+
+    @Setup
+    public void setup() throws Exception {
+        RSA rsa = new RSA();
+        Keypair keypair = rsa.generateKeypair(keyLength, primes);
+        privateKey = keypair.getPrivateKey();
+        message = new BigInteger("Hello World!".getBytes());
+        cipher = keypair.getPublicKey().encode(message);
+    }
+
+    @Benchmark
+    public BigInteger decode() {
+        return privateKey.decode(cipher);
+    }
+
+    @Benchmark
+    public BigInteger sign() {
+        return privateKey.sign(message);
+    }
+}
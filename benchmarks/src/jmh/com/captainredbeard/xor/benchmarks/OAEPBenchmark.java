@@ -0,0 +1,72 @@
+package com.captainredbeard.xor.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * OAEP padding benchmarks.
+ * addPaddingRetry is the old loop, which padded again until the second
+ * byte was negative, for comparison with the single pass addPadding.
+ * Run with -bm sample for the latency percentiles.
+ *
+ * @author captain-redbeard
+ * @version 1.00
+ * @since 17/10/26
+ */
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class OAEPBenchmark {
+
+    @Benchmark
+    public byte[] addPadding(KeyState state) {
+        return state.rsa.addPadding(state.data, state.keyLen);
+    }
+
+    @Benchmark
+    public byte[] addPaddingRetry(KeyState state) {
+        byte[] padded = new byte[2];
+
+        while (padded[1] > -1) {
+            padded = state.rsa.addPadding(state.data, state.keyLen);
+        }
+
+        return padded;
+    }
+
+    @Benchmark
+    public byte[] removePadding(KeyState state) {
+        return state.rsa.removePadding(state.padded, state.keyLen);
+    }
+
+    @Benchmark
+    public int encode(KeyState state, Buffers buffers) {
+        return state.rsa.getOAEP().encode(state.data, 0, state.data.length, buffers.encoded, 0, state.keyLen);
+    }
+
+    @Benchmark
+    public int decode(KeyState state, Buffers buffers) {
+        System.arraycopy(state.padded, 0, buffers.encoded, 0, state.keyLen);
+        return state.rsa.getOAEP().decode(buffers.encoded, 0, state.keyLen, buffers.decoded, 0);
+    }
+
+    /**
+     * Per thread buffers for the in place API.
+     */
+    @State(Scope.Thread)
+    public static class Buffers {
+        public byte[] encoded;
+        public byte[] decoded;
+
+        @Setup
+        public void setup(KeyState state) {
+            encoded = new byte[state.keyLen];
+            decoded = new byte[state.keyLen];
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.captainredbeard.xor.benchmarks;
+
+import com.captainredbeard.xor.PrimeSearch;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigInteger;
+import java.security.SecureRandom;
+
+/**
+ * Prime search benchmarks, the sieve against BigInteger.probablePrime.
+ * Primes are half the key length.
+ *
+ * @author captain-redbeard
+ * @version 1.00
+ * @since 17/10/26
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 5, time = 10)
+public class PrimeSearchBenchmark {
+    @Param({"2048", "3072", "4096"})
+    public int keyLength;
+
+    private SecureRandom random;
+    private PrimeSearch primeSearch;
+
+    @Setup
+    public void setup() {
+        random = new SecureRandom();
+        primeSearch = new PrimeSearch(random);
+    }
+
+    @Benchmark
+    public BigInteger bigIntegerProbablePrime() {
+        return BigInteger.probablePrime(keyLength / 2, random);
+    }
+
+    @Benchmark
+    public BigInteger primeSearch() {
+        return primeSearch.probablePrime(keyLength / 2);
+    }
+}
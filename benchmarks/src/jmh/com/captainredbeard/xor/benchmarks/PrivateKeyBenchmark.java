@@ -0,0 +1,70 @@
+package com.captainredbeard.xor.benchmarks;
+
+import com.captainredbeard.xor.BatchResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigInteger;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Private key benchmarks, decode, decrypt and sign.
+ *
+ * @author captain-redbeard
+ * @version 1.00
+ * @since 17/10/26
+ */
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class PrivateKeyBenchmark {
+
+    @Benchmark
+    public BigInteger decode(KeyState state) {
+        return state.privateKey.decode(state.cipher);
+    }
+
+    @Benchmark
+    public byte[] decrypt(KeyState state) throws Exception {
+        return state.privateKey.decrypt(state.cipherBytes);
+    }
+
+    @Benchmark
+    public int decryptInto(KeyState state) throws Exception {
+        return state.privateKey.decrypt(state.cipherBytes, 0, state.cipherBytes.length, state.messageOut, 0);
+    }
+
+    @Benchmark
+    public BigInteger decodeCRT(KeyState state) {
+        return state.privateKey.decodeCRT(state.rawCipher);
+    }
+
+    @Benchmark
+    public BigInteger decodeCRTMontgomery(KeyState state) {
+        return state.privateKey.decodeCRTMontgomery(state.rawCipher);
+    }
+
+    @Benchmark
+    public BigInteger decodeCRTParallel(KeyState state) {
+        return state.privateKey.decodeCRTParallel(state.rawCipher, ForkJoinPool.commonPool());
+    }
+
+    @Benchmark
+    public BigInteger decodeRaw(KeyState state) {
+        return state.privateKey.decodeRaw(state.rawCipher);
+    }
+
+    @Benchmark
+    public BigInteger sign(KeyState state) {
+        return state.privateKey.sign(state.message);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(KeyState.BATCH_SIZE)
+    public BatchResult<BigInteger> decodeBatch(KeyState state) {
+        return state.privateKey.decodeBatch(state.cipherBatch, ForkJoinPool.commonPool());
+    }
+}
@@ -0,0 +1,48 @@
+package com.captainredbeard.xor.benchmarks;
+
+import com.captainredbeard.xor.Montgomery;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigInteger;
+
+/**
+ * Public exponent (65537) exponentiation, BigInteger.modPow against
+ * Montgomery exponentiation with constants cached for the modulus.
+ * BigInteger.modPow was faster on HotSpot, so PublicKey.encodeRaw uses it.
+ *
+ * @author captain-redbeard
+ * @version 1.00
+ * @since 17/10/26
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class PublicExponentBenchmark {
+    private Montgomery montgomery;
+    private BigInteger modulus;
+    private BigInteger exponent;
+
+    @Setup
+    public void setup(KeyState state) {
+        modulus = state.publicKey.modulus;
+        exponent = state.publicKey.publicExponent;
+        montgomery = new Montgomery(modulus);
+    }
+
+    @Benchmark
+    public BigInteger bigIntegerModPow(KeyState state) {
+        return state.rawCipher.modPow(exponent, modulus);
+    }
+
+    @Benchmark
+    public BigInteger montgomeryModPow(KeyState state) {
+        return montgomery.modPow(state.rawCipher, exponent);
+    }
+}
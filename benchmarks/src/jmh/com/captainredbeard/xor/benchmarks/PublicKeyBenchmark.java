@@ -0,0 +1,47 @@
+package com.captainredbeard.xor.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigInteger;
+
+/**
+ * Public key benchmarks, encode, encrypt and verify.
+ * encrypt is the byte[] API against the BigInteger encode.
+ *
+ * @author captain-redbeard
+ * @version 1.00
+ * @since 17/10/26
+ */
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class PublicKeyBenchmark {
+
+    @Benchmark
+    public BigInteger encode(KeyState state) {
+        return state.publicKey.encode(state.message);
+    }
+
+    @Benchmark
+    public byte[] encrypt(KeyState state) {
+        return state.publicKey.encrypt(state.data);
+    }
+
+    @Benchmark
+    public int encryptInto(KeyState state) {
+        return state.publicKey.encrypt(state.data, 0, state.data.length, state.cipherOut, 0);
+    }
+
+    @Benchmark
+    public BigInteger encodeRaw(KeyState state) {
+        return state.publicKey.encodeRaw(state.message);
+    }
+
+    @Benchmark
+    public boolean verify(KeyState state) {
+        return state.publicKey.verify(state.signature, state.message);
+    }
+}
@@ -0,0 +1,169 @@
+package com.captainredbeard.xor.benchmarks;
+
+import com.captainredbeard.xor.Keypair;
+import com.captainredbeard.xor.LatencyHistogram;
+import com.captainredbeard.xor.PrivateKey;
+import com.captainredbeard.xor.PublicKey;
+import com.captainredbeard.xor.RSA;
+import com.captainredbeard.xor.RSAService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Closed loop load test of RSAService.
+ * Each client thread sends a request, waits for the result and sends
+ * the next, for every client count in turn. Throughput and latency
+ * percentiles are reported through the service and, for comparison,
+ * with the clients calling the keys directly.
+ *
+ * Arguments: operation (decrypt, sign or verify), key length,
+ * seconds per run, number of keys and client counts, e.g.
+ * gradle :benchmarks:loadTest -PloadTest="sign 2048 5 4 1 4 16 64"
+ *
+ * @author captain-redbeard
+ * @version 1.00
+ * @since 17/10/26
+ */
+public class RSAServiceLoadTest {
+    private final String operation;
+    private final PublicKey[] publicKeys;
+    private final PrivateKey[] privateKeys;
+    private final byte[] message = "Hello World! ABCDEFGHIJKLMNOPQRSTUVWXYZ 0123456789".getBytes();
+    private final byte[][] ciphers;
+    private final byte[][] signatures;
+
+    private RSAServiceLoadTest(String operation, int keyLength, int keys) throws Exception {
+        RSA rsa = new RSA();
+        this.operation = operation;
+        this.publicKeys = new PublicKey[keys];
+        this.privateKeys = new PrivateKey[keys];
+        this.ciphers = new byte[keys][];
+        this.signatures = new byte[keys][];
+
+        for (int i = 0; i < keys; i++) {
+            Keypair keypair = rsa.generateKeypair(keyLength);
+            publicKeys[i] = keypair.getPublicKey();
+            privateKeys[i] = keypair.getPrivateKey();
+            ciphers[i] = publicKeys[i].encrypt(message);
+            signatures[i] = privateKeys[i].newSigner().update(message).sign();
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        String operation = args.length > 0 ? args[0] : "decrypt";
+        int keyLength = args.length > 1 ? Integer.parseInt(args[1]) : 2048;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+        int keys = args.length > 3 ? Integer.parseInt(args[3]) : 4;
+        List<Integer> clientCounts = new ArrayList<>();
+
+        for (int i = 4; i < args.length; i++) {
+            clientCounts.add(Integer.parseInt(args[i]));
+        }
+
+        if (clientCounts.isEmpty()) {
+            clientCounts = List.of(1, 4, 16, 64, 256);
+        }
+
+        RSAServiceLoadTest test = new RSAServiceLoadTest(operation, keyLength, keys);
+
+        System.out.println(operation + ", " + keyLength + "-bit, " + keys + " keys, "
+                + Runtime.getRuntime().availableProcessors() + " processors");
+        System.out.printf("%-8s %8s %12s %10s %10s %10s %10s%n",
+                "mode", "clients", "ops/s", "p50 us", "p99 us", "max us", "batch");
+
+        for (int clients : clientCounts) {
+            try (RSAService service = new RSAService()) {
+                test.run(service, clients, seconds);
+            }
+
+            test.run(null, clients, seconds);
+        }
+    }
+
+    /**
+     * Run the clients for the given time, after a warm up of half of it.
+     *
+     * @param service - service, or null to call the keys directly
+     * @param clients - number of client threads
+     * @param seconds - seconds to measure for
+     * @throws InterruptedException if interrupted
+     */
+    private void run(RSAService service, int clients, int seconds) throws InterruptedException {
+        LatencyHistogram histogram = new LatencyHistogram();
+        LongAdder errors = new LongAdder();
+        long warmupEnd = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds) / 2;
+        long end = warmupEnd + TimeUnit.SECONDS.toNanos(seconds);
+        CountDownLatch done = new CountDownLatch(clients);
+
+        for (int c = 0; c < clients; c++) {
+            final int client = c;
+            Thread thread = new Thread(() -> {
+                int i = client;
+
+                try {
+                    long start;
+
+                    while ((start = System.nanoTime()) < end) {
+                        if (!request(service, i++ % privateKeys.length)) {
+                            errors.increment();
+                        }
+
+                        if (start >= warmupEnd) {
+                            histogram.record(System.nanoTime() - start);
+                        }
+                    }
+                } finally {
+                    done.countDown();
+                }
+            }, "client-" + c);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        done.await();
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        System.out.printf("%-8s %8d %12.0f %10.0f %10.0f %10.0f %10s%s%n",
+                service != null ? "service" : "direct",
+                clients,
+                snapshot.getCount() / (double) seconds,
+                snapshot.getPercentile(50, TimeUnit.MICROSECONDS),
+                snapshot.getPercentile(99, TimeUnit.MICROSECONDS),
+                snapshot.getMax(TimeUnit.MICROSECONDS),
+                service != null ? String.format("%.2f", service.getAverageBatchSize()) : "-",
+                errors.sum() > 0 ? " errors: " + errors.sum() : "");
+    }
+
+    /**
+     * Send one request and wait for the result.
+     *
+     * @param service - service, or null to call the key directly
+     * @param k - key index
+     * @return boolean - true if the request succeeded
+     */
+    private boolean request(RSAService service, int k) {
+        try {
+            switch (operation) {
+                case "sign":
+                    return (service != null
+                            ? service.sign(privateKeys[k], message).join()
+                            : privateKeys[k].newSigner().update(message).sign()) != null;
+                case "verify":
+                    return service != null
+                            ? service.verify(publicKeys[k], message, signatures[k]).join()
+                            : publicKeys[k].newVerifier().update(message).verify(signatures[k]);
+                default:
+                    return (service != null
+                            ? service.decrypt(privateKeys[k], ciphers[k]).join()
+                            : privateKeys[k].decrypt(ciphers[k])) != null;
+            }
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+}
@@ -0,0 +1,61 @@
+package com.captainredbeard.xor.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigInteger;
+import java.util.BitSet;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Batch signature verification, scaling with the number of threads.
+ *
+ * @author captain-redbeard
+ * @version 1.00
+ * @since 17/10/26
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class VerifyBatchBenchmark {
+    private static final int BATCH_SIZE = 1024;
+
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    private ForkJoinPool pool;
+    private BigInteger[] signatures;
+    private BigInteger[] messages;
+
+    @Setup
+    public void setup(KeyState state) {
+        pool = new ForkJoinPool(threads);
+        signatures = new BigInteger[BATCH_SIZE];
+        messages = new BigInteger[BATCH_SIZE];
+
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            messages[i] = state.message.add(BigInteger.valueOf(i));
+            signatures[i] = state.privateKey.sign(messages[i]);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public BitSet verifyBatch(KeyState state) {
+        return state.publicKey.verifyBatch(signatures, messages, pool);
+    }
+}
@@ -0,0 +1,90 @@
+package com.captainredbeard.xor;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.IntConsumer;
+
+/**
+ * Runs batch operations split into chunks on an executor.
+ *
+ * @author captain-redbeard
+ * @version 1.00
+ * @since 17/10/26
+ */
+final class Batch {
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private Batch() {
+    }
+
+    /**
+     * Run the operation for each index in [0, n), in chunks on the executor,
+     * and wait for all chunks to complete.
+     * Each chunk runs its indexes in order on a single thread.
+     *
+     * @param n - number of items
+     * @param executor - executor to run the chunks on
+     * @param operation - operation to run for each index
+     */
+    static void forEach(int n, Executor executor, IntConsumer operation) {
+        if (n == 0) {
+            return;
+        }
+
+        int chunks = Math.min(n, Runtime.getRuntime().availableProcessors() * CHUNKS_PER_THREAD);
+        int chunkSize = (n + chunks - 1) / chunks;
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[(n + chunkSize - 1) / chunkSize];
+
+        for (int c = 0; c < futures.length; c++) {
+            int from = c * chunkSize;
+            int to = Math.min(n, from + chunkSize);
+
+            futures[c] = CompletableFuture.runAsync(() -> {
+                for (int i = from; i < to; i++) {
+                    operation.accept(i);
+                }
+            }, executor);
+        }
+
+        CompletableFuture.allOf(futures).join();
+    }
+
+    /**
+     * Run two stage operations for each index in [0, n), in chunks on the
+     * executor, and wait for all chunks to complete.
+     * A chunk runs the first stage for all its indexes, then the second stage
+     * as a separate task, so stages of different chunks overlap.
+     *
+     * @param n - number of items
+     * @param executor - executor to run the chunks on
+     * @param first - first stage for each index
+     * @param second - second stage for each index
+     */
+    static void forEach(int n, Executor executor, IntConsumer first, IntConsumer second) {
+        if (n == 0) {
+            return;
+        }
+
+        int chunks = Math.min(n, Runtime.getRuntime().availableProcessors() * CHUNKS_PER_THREAD);
+        int chunkSize = (n + chunks - 1) / chunks;
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[(n + chunkSize - 1) / chunkSize];
+
+        for (int c = 0; c < futures.length; c++) {
+            int from = c * chunkSize;
+            int to = Math.min(n, from + chunkSize);
+
+            futures[c] = CompletableFuture.runAsync(() -> {
+                for (int i = from; i < to; i++) {
+                    first.accept(i);
+                }
+            }, executor).thenRunAsync(() -> {
+                for (int i = from; i < to; i++) {
+                    second.accept(i);
+                }
+            }, executor);
+        }
+
+        CompletableFuture.allOf(futures).join();
+    }
+
+}
@@ -0,0 +1,96 @@
+package com.captainredbeard.xor;
+
+import java.util.Arrays;
+
+/**
+ * Results of a batch operation, in the order of the input.
+ * Each item either has a value or the exception that failed it.
+ *
+ * @author captain-redbeard
+ * @version 1.00
+ * @since 17/10/26
+ */
+public class BatchResult<T> {
+    private final Object[] values;
+    private final Exception[] failures;
+
+    /**
+     * Construct an empty batch result.
+     *
+     * @param size - number of items
+     */
+    BatchResult(int size) {
+        this.values = new Object[size];
+        this.failures = new Exception[size];
+    }
+
+    /**
+     * Set the value of an item.
+     *
+     * @param i - index of item
+     * @param value - value
+     */
+    void set(int i, T value) {
+        values[i] = value;
+    }
+
+    /**
+     * Set the failure of an item.
+     *
+     * @param i - index of item
+     * @param failure - exception that failed the item
+     */
+    void fail(int i, Exception failure) {
+        failures[i] = failure;
+    }
+
+    /**
+     * Number of items.
+     *
+     * @return int
+     */
+    public int size() {
+        return values.length;
+    }
+
+    /**
+     * Check if the item succeeded.
+     *
+     * @param i - index of item
+     * @return boolean
+     */
+    public boolean isSuccess(int i) {
+        return failures[i] == null;
+    }
+
+    /**
+     * Get the value of the item, null if it failed.
+     *
+     * @param i - index of item
+     * @return T
+     */
+    @SuppressWarnings("unchecked")
+    public T get(int i) {
+        return (T) values[i];
+    }
+
+    /**
+     * Get the exception that failed the item, null if it succeeded.
+     *
+     * @param i - index of item
+     * @return Exception
+     */
+    public Exception getFailure(int i) {
+        return failures[i];
+    }
+
+    /**
+     * Number of failed items.
+     *
+     * @return int
+     */
+    public int getFailureCount() {
+        return (int) Arrays.stream(failures).filter(f -> f != null).count();
+    }
+
+}
@@ -0,0 +1,241 @@
+package com.captainredbeard.xor;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.security.InvalidKeyException;
+
+/**
+ * Streaming DER reader over a ByteBuffer.
+ * Elements are read in order with absolute gets, nested elements are
+ * read by a reader over the same buffer and string contents are returned
+ * as slices, nothing is copied except the bytes of an INTEGER on a
+ * buffer without an accessible array.
+ *
+ * @author captain-redbeard
+ * @version 1.00
+ * @since 17/10/26
+ */
+public class DERReader {
+    public static final int INTEGER = 0x02;
+    public static final int BIT_STRING = 0x03;
+    public static final int OCTET_STRING = 0x04;
+    public static final int NULL = 0x05;
+    public static final int OBJECT_IDENTIFIER = 0x06;
+    public static final int SEQUENCE = 0x30;
+    private final ByteBuffer buffer;
+    private final int limit;
+    private int position;
+
+    /**
+     * Construct a reader over the remaining bytes of the buffer.
+     * The buffer position and limit are not changed.
+     *
+     * @param buffer - DER encoded data
+     */
+    public DERReader(ByteBuffer buffer) {
+        this(buffer, buffer.position(), buffer.limit());
+    }
+
+    /**
+     * Construct a reader over part of the buffer.
+     *
+     * @param buffer - DER encoded data
+     * @param position - start of the data
+     * @param limit - end of the data
+     */
+    private DERReader(ByteBuffer buffer, int position, int limit) {
+        this.buffer = buffer;
+        this.position = position;
+        this.limit = limit;
+    }
+
+    /**
+     * Check if there are more elements.
+     *
+     * @return boolean
+     */
+    public boolean hasRemaining() {
+        return position < limit;
+    }
+
+    /**
+     * Get the tag of the next element without reading it.
+     *
+     * @return int - tag, or -1 if there are no more elements
+     */
+    public int peekTag() {
+        return hasRemaining() ? buffer.get(position) & 0xFF : -1;
+    }
+
+    /**
+     * Read a SEQUENCE.
+     *
+     * @return DERReader - reader over the contents
+     * @throws InvalidKeyException
+     */
+    public DERReader readSequence() throws InvalidKeyException {
+        int length = readHeader(SEQUENCE);
+        DERReader contents = new DERReader(buffer, position, position + length);
+        position += length;
+
+        return contents;
+    }
+
+    /**
+     * Read an INTEGER.
+     *
+     * @return BigInteger
+     * @throws InvalidKeyException
+     */
+    public BigInteger readInteger() throws InvalidKeyException {
+        int length = readHeader(INTEGER);
+
+        if (length == 0) {
+            throw new InvalidKeyException("Empty INTEGER");
+        }
+
+        BigInteger value;
+
+        if (buffer.hasArray()) {
+            value = new BigInteger(buffer.array(), buffer.arrayOffset() + position, length);
+        } else {
+            byte[] bytes = new byte[length];
+            buffer.get(position, bytes);
+            value = new BigInteger(bytes);
+        }
+
+        position += length;
+
+        return value;
+    }
+
+    /**
+     * Read a small non negative INTEGER, such as a version.
+     *
+     * @return int
+     * @throws InvalidKeyException
+     */
+    public int readVersion() throws InvalidKeyException {
+        BigInteger version = readInteger();
+
+        if (version.signum() < 0 || version.bitLength() > 31) {
+            throw new InvalidKeyException("Invalid version: " + version);
+        }
+
+        return version.intValue();
+    }
+
+    /**
+     * Read an OCTET STRING.
+     *
+     * @return ByteBuffer - slice over the contents
+     * @throws InvalidKeyException
+     */
+    public ByteBuffer readOctetString() throws InvalidKeyException {
+        return readContents(OCTET_STRING);
+    }
+
+    /**
+     * Read a BIT STRING of whole bytes.
+     *
+     * @return ByteBuffer - slice over the contents, after the unused bits byte
+     * @throws InvalidKeyException
+     */
+    public ByteBuffer readBitString() throws InvalidKeyException {
+        ByteBuffer contents = readContents(BIT_STRING);
+
+        if (!contents.hasRemaining() || contents.get(0) != 0) {
+            throw new InvalidKeyException("BIT STRING is not byte aligned");
+        }
+
+        return contents.slice(1, contents.remaining() - 1);
+    }
+
+    /**
+     * Read an OBJECT IDENTIFIER.
+     *
+     * @return ByteBuffer - slice over the encoded identifier
+     * @throws InvalidKeyException
+     */
+    public ByteBuffer readObjectIdentifier() throws InvalidKeyException {
+        return readContents(OBJECT_IDENTIFIER);
+    }
+
+    /**
+     * Read a NULL.
+     *
+     * @throws InvalidKeyException
+     */
+    public void readNull() throws InvalidKeyException {
+        if (readHeader(NULL) != 0) {
+            throw new InvalidKeyException("NULL with contents");
+        }
+    }
+
+    /**
+     * Skip the next element.
+     *
+     * @throws InvalidKeyException
+     */
+    public void skip() throws InvalidKeyException {
+        position += readHeader(peekTag());
+    }
+
+    /**
+     * Read an element and return its contents.
+     *
+     * @param tag - expected tag
+     * @return ByteBuffer - slice over the contents
+     * @throws InvalidKeyException
+     */
+    private ByteBuffer readContents(int tag) throws InvalidKeyException {
+        int length = readHeader(tag);
+        ByteBuffer contents = buffer.slice(position, length);
+        position += length;
+
+        return contents;
+    }
+
+    /**
+     * Read the tag and length of the next element.
+     *
+     * @param tag - expected tag
+     * @return int - length of the contents, position is at the contents
+     * @throws InvalidKeyException
+     */
+    private int readHeader(int tag) throws InvalidKeyException {
+        if (position + 2 > limit) {
+            throw new InvalidKeyException("Truncated DER");
+        }
+
+        int actual = buffer.get(position++) & 0xFF;
+
+        if (actual != tag) {
+            throw new InvalidKeyException("Expected tag " + tag + ", found " + actual);
+        }
+
+        int length = buffer.get(position++) & 0xFF;
+
+        //Long form, up to 4 length bytes, indefinite lengths are not DER
+        if (length > 0x7F) {
+            int bytes = length & 0x7F;
+
+            if (bytes == 0 || bytes > 4 || position + bytes > limit) {
+                throw new InvalidKeyException("Invalid DER length");
+            }
+
+            length = 0;
+
+            for (int i = 0; i < bytes; i++) {
+                length = (length << 8) | (buffer.get(position++) & 0xFF);
+            }
+        }
+
+        if (length < 0 || length > limit - position) {
+            throw new InvalidKeyException("Truncated DER");
+        }
+
+        return length;
+    }
+
+}
@@ -0,0 +1,171 @@
+package com.captainredbeard.xor;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+
+/**
+ * DER writer for the few types keys need.
+ * Elements are appended to a growing buffer, constructed types
+ * are written from the encoded contents of another writer.
+ *
+ * @author captain-redbeard
+ * @version 1.00
+ * @since 17/10/26
+ */
+public class DERWriter {
+    private byte[] buffer;
+    private int count;
+
+    public DERWriter() {
+        this(256);
+    }
+
+    /**
+     * Construct a writer with an initial capacity.
+     *
+     * @param capacity - initial capacity in bytes
+     */
+    public DERWriter(int capacity) {
+        this.buffer = new byte[Math.max(16, capacity)];
+    }
+
+    /**
+     * Write an INTEGER.
+     *
+     * @param value - value
+     * @return DERWriter
+     */
+    public DERWriter writeInteger(BigInteger value) {
+        return write(DERReader.INTEGER, value.toByteArray());
+    }
+
+    /**
+     * Write an INTEGER.
+     *
+     * @param value - value
+     * @return DERWriter
+     */
+    public DERWriter writeInteger(int value) {
+        return writeInteger(BigInteger.valueOf(value));
+    }
+
+    /**
+     * Write an OCTET STRING.
+     *
+     * @param contents - contents
+     * @return DERWriter
+     */
+    public DERWriter writeOctetString(byte[] contents) {
+        return write(DERReader.OCTET_STRING, contents);
+    }
+
+    /**
+     * Write a BIT STRING of whole bytes.
+     *
+     * @param contents - contents
+     * @return DERWriter
+     */
+    public DERWriter writeBitString(byte[] contents) {
+        writeHeader(DERReader.BIT_STRING, contents.length + 1);
+        ensureCapacity(contents.length + 1);
+        buffer[count++] = 0;
+        System.arraycopy(contents, 0, buffer, count, contents.length);
+        count += contents.length;
+
+        return this;
+    }
+
+    /**
+     * Write an OBJECT IDENTIFIER.
+     *
+     * @param encoded - encoded identifier, without tag and length
+     * @return DERWriter
+     */
+    public DERWriter writeObjectIdentifier(byte[] encoded) {
+        return write(DERReader.OBJECT_IDENTIFIER, encoded);
+    }
+
+    /**
+     * Write a NULL.
+     *
+     * @return DERWriter
+     */
+    public DERWriter writeNull() {
+        return write(DERReader.NULL, new byte[0]);
+    }
+
+    /**
+     * Write a SEQUENCE.
+     *
+     * @param contents - writer holding the encoded contents
+     * @return DERWriter
+     */
+    public DERWriter writeSequence(DERWriter contents) {
+        writeHeader(DERReader.SEQUENCE, contents.count);
+        ensureCapacity(contents.count);
+        System.arraycopy(contents.buffer, 0, buffer, count, contents.count);
+        count += contents.count;
+
+        return this;
+    }
+
+    /**
+     * Get the encoded bytes.
+     *
+     * @return byte[]
+     */
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buffer, count);
+    }
+
+    /**
+     * Write an element.
+     *
+     * @param tag - tag
+     * @param contents - contents
+     * @return DERWriter
+     */
+    private DERWriter write(int tag, byte[] contents) {
+        writeHeader(tag, contents.length);
+        ensureCapacity(contents.length);
+        System.arraycopy(contents, 0, buffer, count, contents.length);
+        count += contents.length;
+
+        return this;
+    }
+
+    /**
+     * Write a tag and definite length.
+     *
+     * @param tag - tag
+     * @param length - length of the contents
+     */
+    private void writeHeader(int tag, int length) {
+        ensureCapacity(6);
+        buffer[count++] = (byte) tag;
+
+        if (length < 0x80) {
+            buffer[count++] = (byte) length;
+            return;
+        }
+
+        int bytes = (Integer.SIZE - Integer.numberOfLeadingZeros(length) + 7) / 8;
+        buffer[count++] = (byte) (0x80 | bytes);
+
+        for (int i = bytes - 1; i >= 0; i--) {
+            buffer[count++] = (byte) (length >>> (8 * i));
+        }
+    }
+
+    /**
+     * Grow the buffer to fit more bytes.
+     *
+     * @param length - bytes to fit
+     */
+    private void ensureCapacity(int length) {
+        if (count + length > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, count + length));
+        }
+    }
+
+}
@@ -1,14 +1,78 @@
 package com.captainredbeard.xor;
 
+import java.nio.ByteBuffer;
 import java.security.MessageDigest;
-import java.util.Arrays;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
+ * Message digest engine.
+ * Engines are thread confined and reused, one per algorithm per thread,
+ * so hashing does not pay for a provider lookup on every call.
+ *
  * @author captain-redbeard
  * @version 1.00
  * @since 29/12/16
  */
 public class Digest {
+    public static final String DEFAULT_ALGORITHM = "SHA-512";
+    private static final ThreadLocal<Map<String, Digest>> ENGINES = ThreadLocal.withInitial(HashMap::new);
+    private final MessageDigest messageDigest;
+    private final byte[] hash;
+
+    /**
+     * Construct a digest engine.
+     *
+     * @param messageDigest - message digest to wrap
+     */
+    private Digest(MessageDigest messageDigest) {
+        this.messageDigest = messageDigest;
+        this.hash = new byte[messageDigest.getDigestLength()];
+    }
+
+    /**
+     * Get the digest engine for the current thread.
+     * The returned engine is reset and must not be shared between threads.
+     *
+     * @param algorithm - algorithm to use, default SHA-512
+     * @return Digest
+     */
+    public static Digest getEngine(String algorithm) {
+        if (algorithm == null) {
+            algorithm = DEFAULT_ALGORITHM;
+        }
+
+        Map<String, Digest> engines = ENGINES.get();
+        Digest engine = engines.get(algorithm);
+
+        if (engine == null) {
+            try {
+                engine = new Digest(MessageDigest.getInstance(algorithm));
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalArgumentException("Unknown digest algorithm: " + algorithm, e);
+            }
+
+            engines.put(algorithm, engine);
+        }
+
+        return engine.reset();
+    }
+
+    /**
+     * Create a digest engine owned by the caller, for digests
+     * which are updated across calls, such as a streaming signature.
+     *
+     * @param algorithm - algorithm to use, default SHA-512
+     * @return Digest
+     */
+    public static Digest newEngine(String algorithm) {
+        try {
+            return new Digest(MessageDigest.getInstance(algorithm == null ? DEFAULT_ALGORITHM : algorithm));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalArgumentException("Unknown digest algorithm: " + algorithm, e);
+        }
+    }
 
     /**
      * Get message digest for the specified input.
@@ -19,20 +83,126 @@ public class Digest {
      * @return byte[]
      */
     public static byte[] getDigest(byte[] m, String algorithm, int length) {
-        if(algorithm == null) {
-            algorithm = "SHA-512";
-        }
-
-        byte[] hash;
+        Digest engine;
 
         try {
-            MessageDigest digest = MessageDigest.getInstance(algorithm);
-            hash = digest.digest(m);
+            engine = getEngine(algorithm);
         } catch (Exception e) {
             e.printStackTrace();
             return new byte[0];
         }
 
-        return Arrays.copyOfRange(hash, 0, length);
+        byte[] hash = new byte[length];
+        engine.update(m).digest(hash, 0, Math.min(length, engine.getDigestLength()));
+
+        return hash;
+    }
+
+    /**
+     * Reset the engine, discarding any data already added.
+     *
+     * @return Digest
+     */
+    public Digest reset() {
+        messageDigest.reset();
+        return this;
+    }
+
+    /**
+     * Add data to the digest.
+     *
+     * @param m - data to add
+     * @return Digest
+     */
+    public Digest update(byte[] m) {
+        messageDigest.update(m);
+        return this;
+    }
+
+    /**
+     * Add part of an array to the digest.
+     *
+     * @param m - data to add
+     * @param off - offset of data in m
+     * @param len - length of data
+     * @return Digest
+     */
+    public Digest update(byte[] m, int off, int len) {
+        messageDigest.update(m, off, len);
+        return this;
+    }
+
+    /**
+     * Add the remaining bytes of the buffer to the digest.
+     *
+     * @param m - data to add, its position is advanced to the limit
+     * @return Digest
+     */
+    public Digest update(ByteBuffer m) {
+        messageDigest.update(m);
+        return this;
+    }
+
+    /**
+     * Add a single byte to the digest.
+     *
+     * @param b - byte to add
+     * @return Digest
+     */
+    public Digest update(byte b) {
+        messageDigest.update(b);
+        return this;
+    }
+
+    /**
+     * Add an int to the digest as four big-endian bytes.
+     *
+     * @param i - int to add
+     * @return Digest
+     */
+    public Digest updateInt(int i) {
+        messageDigest.update((byte) (i >>> 24));
+        messageDigest.update((byte) (i >>> 16));
+        messageDigest.update((byte) (i >>> 8));
+        messageDigest.update((byte) i);
+        return this;
+    }
+
+    /**
+     * Complete the digest, writing it into out and resetting the engine.
+     * The digest is truncated to length bytes.
+     *
+     * @param out - buffer to write the digest to
+     * @param off - offset in out
+     * @param length - length of digest to write, must be less than or equal to max length
+     * @return int - number of bytes written
+     */
+    public int digest(byte[] out, int off, int length) {
+        if (length > hash.length) {
+            throw new IllegalArgumentException("Digest length " + length + " exceeds " + hash.length);
+        }
+
+        try {
+            if (length == hash.length) {
+                return messageDigest.digest(out, off, length);
+            }
+
+            messageDigest.digest(hash, 0, hash.length);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+
+        System.arraycopy(hash, 0, out, off, length);
+
+        return length;
+    }
+
+    /**
+     * Get the full digest length of the algorithm.
+     *
+     * @return int
+     */
+    public int getDigestLength() {
+        return hash.length;
     }
 }
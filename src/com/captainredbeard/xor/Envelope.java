@@ -0,0 +1,627 @@
+package com.captainredbeard.xor;
+
+import javax.crypto.AEADBadTagException;
+import javax.crypto.BadPaddingException;
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+
+/**
+ * Hybrid encryption for payloads of any length.
+ * A random AES-256 data key is wrapped with RSA-OAEP and the payload
+ * is encrypted as a stream of AES-GCM chunks, so memory use is one
+ * chunk whatever the payload length.
+ *
+ * 'X' 'E' || version (1 byte) || reserved (1 byte) || chunk size (4 bytes)
+ *   || nonce prefix (7 bytes) || wrapped key length (2 bytes) || wrapped key
+ *   || chunks
+ *
+ * Each chunk is AES-GCM over up to chunk size bytes with a 16 byte tag.
+ * The nonce is prefix || chunk index (4 bytes) || final flag (1 byte)
+ * and the header is the additional data of every chunk, so chunks cannot
+ * be reordered, dropped, truncated or moved between envelopes. Full chunks
+ * are never final, the final chunk is shorter and may be empty.
+ *
+ * @author captain-redbeard
+ * @version 1.00
+ * @since 17/10/26
+ */
+public class Envelope {
+    public static final int VERSION = 1;
+    public static final int DEFAULT_CHUNK_SIZE = 64 * 1024;
+    public static final int MAX_CHUNK_SIZE = 16 * 1024 * 1024;
+    private static final int KEY_LENGTH = 32;
+    private static final int PREFIX_LENGTH = 7;
+    private static final int TAG_LENGTH = 16;
+    private static final int FIXED_HEADER_LENGTH = 17;
+    private static final int CHUNKS_PER_MAPPING = 1024;
+    private final SecureRandom random;
+    private final int chunkSize;
+
+    public Envelope() {
+        this(null, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Construct an envelope with specified random and chunk size.
+     *
+     * @param random - secure random
+     * @param chunkSize - plain text bytes per chunk
+     */
+    public Envelope(SecureRandom random, int chunkSize) {
+        //Set secure random
+        if (random != null) {
+            this.random = random;
+        } else {
+            this.random = new SecureRandom();
+        }
+
+        if (chunkSize < 1 || chunkSize > MAX_CHUNK_SIZE) {
+            throw new IllegalArgumentException("Invalid chunk size: " + chunkSize);
+        }
+
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Encrypt everything from in to out. Neither stream is closed.
+     *
+     * @param key - recipient public key
+     * @param in - plain text
+     * @param out - envelope
+     * @return long - plain text bytes encrypted
+     * @throws IOException
+     */
+    public long encrypt(PublicKey key, InputStream in, OutputStream out) throws IOException {
+        OutputStream encrypting = encryptingStream(key, new FilterOutputStream(out) {
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+            }
+
+            @Override
+            public void close() throws IOException {
+                flush();
+            }
+        });
+
+        long length = in.transferTo(encrypting);
+        encrypting.close();
+
+        return length;
+    }
+
+    /**
+     * Decrypt an envelope from in to out. Neither stream is closed.
+     * Nothing after a failed chunk is written, but chunks before it
+     * have been, discard the output if this throws.
+     *
+     * @param key - recipient private key
+     * @param in - envelope
+     * @param out - plain text
+     * @return long - plain text bytes decrypted
+     * @throws IOException if the envelope is malformed, truncated or modified
+     * @throws BadPaddingException if the data key can not be unwrapped
+     */
+    public long decrypt(PrivateKey key, InputStream in, OutputStream out) throws IOException, BadPaddingException {
+        InputStream decrypting = decryptingStream(key, new FilterInputStream(in) {
+            @Override
+            public void close() {
+                //Leave the caller's stream open
+            }
+        });
+
+        long length = decrypting.transferTo(out);
+        decrypting.close();
+
+        return length;
+    }
+
+    /**
+     * Get a stream which encrypts everything written to it into out.
+     * The header is written immediately, closing the stream writes
+     * the final chunk and closes out.
+     *
+     * @param key - recipient public key
+     * @param out - envelope
+     * @return OutputStream
+     * @throws IOException
+     */
+    public OutputStream encryptingStream(PublicKey key, OutputStream out) throws IOException {
+        Chunks chunks = newChunks(key);
+        out.write(chunks.header);
+
+        return new EncryptingOutputStream(out, chunks);
+    }
+
+    /**
+     * Get a stream which decrypts the envelope read from in.
+     * The header is read and the data key unwrapped immediately.
+     * A chunk is only returned once its tag has been checked,
+     * reads throw IOException if the envelope is truncated or modified.
+     *
+     * @param key - recipient private key
+     * @param in - envelope
+     * @return InputStream
+     * @throws IOException if the header is malformed
+     * @throws BadPaddingException if the data key can not be unwrapped
+     */
+    public InputStream decryptingStream(PrivateKey key, InputStream in) throws IOException, BadPaddingException {
+        byte[] fixed = new byte[FIXED_HEADER_LENGTH];
+        readFully(in, fixed, 0, fixed.length);
+        byte[] header = Arrays.copyOf(fixed, fixed.length + checkHeader(ByteBuffer.wrap(fixed)));
+        readFully(in, header, fixed.length, header.length - fixed.length);
+
+        return new DecryptingInputStream(in, openChunks(key, header));
+    }
+
+    /**
+     * Encrypt the rest of the in channel to out.
+     * The input is memory mapped and chunks are encrypted straight
+     * from the mapping into a direct buffer, so the plain text is
+     * never copied onto the heap.
+     *
+     * @param key - recipient public key
+     * @param in - plain text, from its position
+     * @param out - envelope, from its position
+     * @return long - plain text bytes encrypted
+     * @throws IOException
+     */
+    public long encrypt(PublicKey key, FileChannel in, FileChannel out) throws IOException {
+        Chunks chunks = newChunks(key);
+        writeFully(out, ByteBuffer.wrap(chunks.header));
+
+        long start = in.position();
+        long length = in.size() - start;
+        long full = length / chunkSize;
+        ByteBuffer output = ByteBuffer.allocateDirect(chunkSize + TAG_LENGTH);
+        MappedByteBuffer mapping = null;
+        long mappingStart = 0;
+
+        for (long index = 0; index <= full; index++) {
+            long offset = index * chunkSize;
+            int size = index < full ? chunkSize : (int) (length - offset);
+
+            //Map the next window of whole chunks
+            if (mapping == null || offset - mappingStart + size > mapping.capacity()) {
+                mappingStart = offset;
+                mapping = in.map(
+                        FileChannel.MapMode.READ_ONLY,
+                        start + offset,
+                        Math.min((long) chunkSize * CHUNKS_PER_MAPPING, length - offset)
+                );
+            }
+
+            output.clear();
+            chunks.encrypt(index, index == full, mapping.slice((int) (offset - mappingStart), size), output);
+            writeFully(out, output.flip());
+        }
+
+        in.position(start + length);
+
+        return length;
+    }
+
+    /**
+     * Decrypt the envelope in the rest of the in channel to out.
+     * The input is memory mapped, see encrypt.
+     * Nothing after a failed chunk is written, discard the output if this throws.
+     *
+     * @param key - recipient private key
+     * @param in - envelope, from its position
+     * @param out - plain text, from its position
+     * @return long - plain text bytes decrypted
+     * @throws IOException if the envelope is malformed, truncated or modified
+     * @throws BadPaddingException if the data key can not be unwrapped
+     */
+    public long decrypt(PrivateKey key, FileChannel in, FileChannel out) throws IOException, BadPaddingException {
+        ByteBuffer fixed = ByteBuffer.allocate(FIXED_HEADER_LENGTH);
+        readFully(in, fixed);
+        ByteBuffer header = ByteBuffer.allocate(FIXED_HEADER_LENGTH + checkHeader(fixed.flip())).put(fixed.rewind());
+        readFully(in, header);
+
+        Chunks chunks = openChunks(key, header.array());
+        int sealed = chunks.chunkSize + TAG_LENGTH;
+        long start = in.position();
+        long length = in.size() - start;
+        long full = length / sealed;
+        ByteBuffer output = ByteBuffer.allocateDirect(chunks.chunkSize);
+        MappedByteBuffer mapping = null;
+        long mappingStart = 0;
+        long written = 0;
+
+        if (length - full * sealed < TAG_LENGTH) {
+            throw new IOException("Truncated envelope");
+        }
+
+        for (long index = 0; index <= full; index++) {
+            long offset = index * sealed;
+            int size = index < full ? sealed : (int) (length - offset);
+
+            if (mapping == null || offset - mappingStart + size > mapping.capacity()) {
+                mappingStart = offset;
+                mapping = in.map(
+                        FileChannel.MapMode.READ_ONLY,
+                        start + offset,
+                        Math.min((long) sealed * CHUNKS_PER_MAPPING, length - offset)
+                );
+            }
+
+            output.clear();
+            chunks.decrypt(index, index == full, mapping.slice((int) (offset - mappingStart), size), output);
+            written += writeFully(out, output.flip());
+        }
+
+        in.position(start + length);
+
+        return written;
+    }
+
+    /**
+     * Get the chunk size.
+     *
+     * @return int
+     */
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * New data key and header for an envelope to the key.
+     *
+     * @param key - recipient public key
+     * @return Chunks
+     * @throws IOException if the key can not wrap a data key
+     */
+    private Chunks newChunks(PublicKey key) throws IOException {
+        byte[] dataKey = new byte[KEY_LENGTH];
+        byte[] prefix = new byte[PREFIX_LENGTH];
+        random.nextBytes(dataKey);
+        random.nextBytes(prefix);
+
+        byte[] wrapped = key.encrypt(dataKey);
+
+        if (wrapped == null) {
+            throw new IOException("Public key can not wrap a data key");
+        }
+
+        byte[] header = ByteBuffer.allocate(FIXED_HEADER_LENGTH + wrapped.length)
+                .put((byte) 'X')
+                .put((byte) 'E')
+                .put((byte) VERSION)
+                .put((byte) 0)
+                .putInt(chunkSize)
+                .put(prefix)
+                .putShort((short) wrapped.length)
+                .put(wrapped)
+                .array();
+
+        return new Chunks(dataKey, header);
+    }
+
+    /**
+     * Unwrap the data key of an envelope.
+     *
+     * @param key - recipient private key
+     * @param header - whole header
+     * @return Chunks
+     * @throws BadPaddingException if the data key can not be unwrapped
+     */
+    private static Chunks openChunks(PrivateKey key, byte[] header) throws BadPaddingException {
+        byte[] dataKey = key.decrypt(Arrays.copyOfRange(header, FIXED_HEADER_LENGTH, header.length));
+
+        if (dataKey.length != KEY_LENGTH) {
+            throw new BadPaddingException("Invalid data key");
+        }
+
+        return new Chunks(dataKey, header);
+    }
+
+    /**
+     * Check the fixed part of a header.
+     *
+     * @param fixed - fixed part of the header
+     * @return int - wrapped key length
+     * @throws IOException if the header is malformed
+     */
+    private static int checkHeader(ByteBuffer fixed) throws IOException {
+        if (fixed.get(0) != 'X' || fixed.get(1) != 'E') {
+            throw new IOException("Not an envelope");
+        }
+
+        if (fixed.get(2) != VERSION) {
+            throw new IOException("Unsupported envelope version: " + fixed.get(2));
+        }
+
+        int chunkSize = fixed.getInt(4);
+
+        if (chunkSize < 1 || chunkSize > MAX_CHUNK_SIZE) {
+            throw new IOException("Invalid chunk size: " + chunkSize);
+        }
+
+        return fixed.getShort(FIXED_HEADER_LENGTH - 2) & 0xFFFF;
+    }
+
+    /**
+     * Read exactly len bytes.
+     *
+     * @param in - stream
+     * @param b - buffer
+     * @param off - offset in b
+     * @param len - bytes to read
+     * @throws IOException
+     */
+    private static void readFully(InputStream in, byte[] b, int off, int len) throws IOException {
+        if (in.readNBytes(b, off, len) != len) {
+            throw new EOFException("Truncated envelope");
+        }
+    }
+
+    /**
+     * Fill the buffer from the channel.
+     *
+     * @param in - channel
+     * @param buffer - buffer to fill
+     * @throws IOException
+     */
+    private static void readFully(FileChannel in, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (in.read(buffer) < 0) {
+                throw new EOFException("Truncated envelope");
+            }
+        }
+    }
+
+    /**
+     * Write the whole buffer to the channel.
+     *
+     * @param out - channel
+     * @param buffer - buffer to write
+     * @return int - bytes written
+     * @throws IOException
+     */
+    private static int writeFully(FileChannel out, ByteBuffer buffer) throws IOException {
+        int length = buffer.remaining();
+
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+
+        return length;
+    }
+
+    /**
+     * AES-GCM for the chunks of one envelope.
+     */
+    private static final class Chunks {
+        private final Cipher cipher;
+        private final SecretKeySpec key;
+        private final byte[] header;
+        private final byte[] nonce = new byte[12];
+        private final int chunkSize;
+
+        private Chunks(byte[] dataKey, byte[] header) {
+            try {
+                this.cipher = Cipher.getInstance("AES/GCM/NoPadding");
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("AES/GCM is not available", e);
+            }
+
+            this.key = new SecretKeySpec(dataKey, "AES");
+            this.header = header;
+            this.chunkSize = ByteBuffer.wrap(header).getInt(4);
+            System.arraycopy(header, 8, nonce, 0, PREFIX_LENGTH);
+        }
+
+        private void encrypt(long index, boolean last, ByteBuffer in, ByteBuffer out) throws IOException {
+            try {
+                init(Cipher.ENCRYPT_MODE, index, last);
+                cipher.doFinal(in, out);
+            } catch (GeneralSecurityException e) {
+                throw new IOException("Chunk encryption failed", e);
+            }
+        }
+
+        private int encrypt(long index, boolean last, byte[] in, int len, byte[] out) throws IOException {
+            try {
+                init(Cipher.ENCRYPT_MODE, index, last);
+                return cipher.doFinal(in, 0, len, out, 0);
+            } catch (GeneralSecurityException e) {
+                throw new IOException("Chunk encryption failed", e);
+            }
+        }
+
+        private void decrypt(long index, boolean last, ByteBuffer in, ByteBuffer out) throws IOException {
+            try {
+                init(Cipher.DECRYPT_MODE, index, last);
+                cipher.doFinal(in, out);
+            } catch (AEADBadTagException e) {
+                throw new IOException("Envelope chunk " + index + " failed authentication", e);
+            } catch (GeneralSecurityException e) {
+                throw new IOException("Chunk decryption failed", e);
+            }
+        }
+
+        private int decrypt(long index, boolean last, byte[] in, int len, byte[] out) throws IOException {
+            try {
+                init(Cipher.DECRYPT_MODE, index, last);
+                return cipher.doFinal(in, 0, len, out, 0);
+            } catch (AEADBadTagException e) {
+                throw new IOException("Envelope chunk " + index + " failed authentication", e);
+            } catch (GeneralSecurityException e) {
+                throw new IOException("Chunk decryption failed", e);
+            }
+        }
+
+        /**
+         * Nonce = prefix || index || final flag, header as additional data.
+         */
+        private void init(int mode, long index, boolean last) throws GeneralSecurityException {
+            if (index > 0xFFFFFFFFL) {
+                throw new GeneralSecurityException("Too many chunks");
+            }
+
+            nonce[7] = (byte) (index >>> 24);
+            nonce[8] = (byte) (index >>> 16);
+            nonce[9] = (byte) (index >>> 8);
+            nonce[10] = (byte) index;
+            nonce[11] = (byte) (last ? 1 : 0);
+
+            cipher.init(mode, key, new GCMParameterSpec(TAG_LENGTH * 8, nonce));
+            cipher.updateAAD(header);
+        }
+    }
+
+    /**
+     * Buffers one chunk of plain text, writing it when full.
+     */
+    private static final class EncryptingOutputStream extends OutputStream {
+        private final OutputStream out;
+        private final Chunks chunks;
+        private final byte[] plain;
+        private final byte[] sealed;
+        private int count;
+        private long index;
+        private boolean closed;
+
+        private EncryptingOutputStream(OutputStream out, Chunks chunks) {
+            this.out = out;
+            this.chunks = chunks;
+            this.plain = new byte[chunks.chunkSize];
+            this.sealed = new byte[chunks.chunkSize + TAG_LENGTH];
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (closed) {
+                throw new IOException("Stream closed");
+            }
+
+            while (len > 0) {
+                int n = Math.min(len, plain.length - count);
+                System.arraycopy(b, off, plain, count, n);
+                count += n;
+                off += n;
+                len -= n;
+
+                //Full chunks are never final
+                if (count == plain.length) {
+                    writeChunk(false);
+                }
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!closed) {
+                closed = true;
+                writeChunk(true);
+                out.close();
+            }
+        }
+
+        private void writeChunk(boolean last) throws IOException {
+            out.write(sealed, 0, chunks.encrypt(index++, last, plain, count, sealed));
+            count = 0;
+        }
+    }
+
+    /**
+     * Reads and authenticates one chunk at a time.
+     */
+    private static final class DecryptingInputStream extends InputStream {
+        private final InputStream in;
+        private final Chunks chunks;
+        private final byte[] plain;
+        private final byte[] sealed;
+        private int position;
+        private int count;
+        private long index;
+        private boolean last;
+
+        private DecryptingInputStream(InputStream in, Chunks chunks) {
+            this.in = in;
+            this.chunks = chunks;
+            this.plain = new byte[chunks.chunkSize];
+            this.sealed = new byte[chunks.chunkSize + TAG_LENGTH];
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            return read(b, 0, 1) < 0 ? -1 : b[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+
+            while (position == count) {
+                if (last) {
+                    return -1;
+                }
+
+                readChunk();
+            }
+
+            int n = Math.min(len, count - position);
+            System.arraycopy(plain, position, b, off, n);
+            position += n;
+
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return count - position;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+
+        private void readChunk() throws IOException {
+            int n = in.readNBytes(sealed, 0, sealed.length);
+
+            //Only the final chunk is short
+            last = n < sealed.length;
+
+            if (last && n < TAG_LENGTH) {
+                throw new EOFException("Truncated envelope");
+            }
+
+            count = chunks.decrypt(index++, last, sealed, n, plain);
+            position = 0;
+
+            if (last && in.read() >= 0) {
+                throw new IOException("Data after final envelope chunk");
+            }
+        }
+    }
+
+}
@@ -0,0 +1,419 @@
+package com.captainredbeard.xor;
+
+import java.security.InvalidKeyException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded cache of key handles by id, loading misses from a KeySource.
+ * A cached private key and its public key are reused across calls, so
+ * the blinding pairs of the private key and the settings made by the
+ * setup survive between uses.
+ *
+ * The cache is split into segments by id, each an LRU map under its own
+ * lock, holding up to maxEntries keys in total. Concurrent misses for one
+ * id share a single load. Ids the source does not have are not cached.
+ *
+ * @author captain-redbeard
+ * @version 1.00
+ * @since 17/10/26
+ */
+public class KeyCache {
+    public static final int DEFAULT_SEGMENTS = 16;
+    private static final int MIN_SEGMENT_ENTRIES = 64;
+    private final KeySource source;
+    private final Segment[] segments;
+    private final Map<String, CompletableFuture<Entry>> loading = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder loadTime = new LongAdder();
+    private final LongAdder loadFailures = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private volatile Setup setup;
+
+    /**
+     * Construct a cache with up to DEFAULT_SEGMENTS segments,
+     * fewer for small caches so each segment holds at least 64 keys.
+     *
+     * @param source - source to load misses from
+     * @param maxEntries - maximum number of cached keys
+     */
+    public KeyCache(KeySource source, int maxEntries) {
+        this(source, maxEntries, Math.max(1, Math.min(DEFAULT_SEGMENTS, maxEntries / MIN_SEGMENT_ENTRIES)));
+    }
+
+    /**
+     * Construct a cache.
+     * More segments mean less lock contention but a less exact LRU,
+     * each segment evicts its own least recently used key.
+     *
+     * @param source - source to load misses from
+     * @param maxEntries - maximum number of cached keys
+     * @param segments - number of segments, at most maxEntries are used
+     */
+    public KeyCache(KeySource source, int maxEntries, int segments) {
+        if (source == null || maxEntries < 1 || segments < 1) {
+            throw new IllegalArgumentException("Invalid cache configuration");
+        }
+
+        this.source = source;
+        this.segments = new Segment[Math.min(segments, maxEntries)];
+
+        //Spread maxEntries over the segments
+        for (int i = 0; i < this.segments.length; i++) {
+            int capacity = maxEntries / this.segments.length + (i < maxEntries % this.segments.length ? 1 : 0);
+            this.segments[i] = new Segment(capacity);
+        }
+    }
+
+    /**
+     * Set a setup to run on each loaded private key before it is cached,
+     * such as enabling the fault check or metrics.
+     * The setup is not applied to the cached public key, metrics for it
+     * are set on the handle from getPublicKey, which is kept while cached.
+     *
+     * @param setup - setup, null for none
+     * @return KeyCache
+     */
+    public KeyCache setSetup(Setup setup) {
+        this.setup = setup;
+        return this;
+    }
+
+    /**
+     * Get the private key with the id, loading it on a miss.
+     *
+     * @param id - key id
+     * @return PrivateKey - or null if not found
+     * @throws InvalidKeyException if the stored key is malformed
+     */
+    public PrivateKey getPrivateKey(String id) throws InvalidKeyException {
+        Entry entry = get(id);
+        return entry != null ? entry.privateKey : null;
+    }
+
+    /**
+     * Get the public key with the id, loading it on a miss.
+     *
+     * @param id - key id
+     * @return PublicKey - or null if not found
+     * @throws InvalidKeyException if the stored key is malformed
+     */
+    public PublicKey getPublicKey(String id) throws InvalidKeyException {
+        Entry entry = get(id);
+        return entry != null ? entry.publicKey : null;
+    }
+
+    /**
+     * Remove the key with the id, the next get loads it again.
+     * A load already running is not cached, so a key rotated
+     * in the source is not replaced by the one loaded before.
+     *
+     * @param id - key id
+     */
+    public void invalidate(String id) {
+        Segment segment = segment(id);
+
+        synchronized (segment) {
+            segment.remove(id);
+            loading.remove(id);
+        }
+    }
+
+    /**
+     * Remove all keys, loads already running are not cached.
+     */
+    public void invalidateAll() {
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+                loading.keySet().removeIf(id -> segment(id) == segment);
+            }
+        }
+    }
+
+    /**
+     * Get the number of cached keys.
+     *
+     * @return int
+     */
+    public int size() {
+        int size = 0;
+
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+
+        return size;
+    }
+
+    /**
+     * Get the number of gets served from the cache.
+     *
+     * @return long
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Get the number of gets not served from the cache.
+     *
+     * @return long
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Get the fraction of gets served from the cache.
+     *
+     * @return double - 0 to 1, 0 before the first get
+     */
+    public double getHitRate() {
+        long hit = hits.sum();
+        long total = hit + misses.sum();
+        return total > 0 ? (double) hit / total : 0;
+    }
+
+    /**
+     * Get the number of loads from the source, found or not.
+     *
+     * @return long
+     */
+    public long getLoads() {
+        return loads.sum();
+    }
+
+    /**
+     * Get the number of loads which failed with an exception.
+     *
+     * @return long
+     */
+    public long getLoadFailures() {
+        return loadFailures.sum();
+    }
+
+    /**
+     * Get the number of keys evicted to make room.
+     *
+     * @return long
+     */
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * Get the average time of a load from the source.
+     *
+     * @param unit - unit of the result
+     * @return long
+     */
+    public long getAverageLoadTime(TimeUnit unit) {
+        long count = loads.sum();
+        return count > 0 ? unit.convert(loadTime.sum() / count, TimeUnit.NANOSECONDS) : 0;
+    }
+
+    /**
+     * Get the entry with the id, loading it on a miss.
+     *
+     * @param id - key id
+     * @return Entry - or null if not found
+     * @throws InvalidKeyException if the stored key is malformed
+     */
+    private Entry get(String id) throws InvalidKeyException {
+        Segment segment = segment(id);
+        Entry entry;
+
+        synchronized (segment) {
+            entry = segment.get(id);
+        }
+
+        if (entry != null) {
+            hits.increment();
+            return entry;
+        }
+
+        misses.increment();
+
+        return load(id, segment);
+    }
+
+    /**
+     * Load the entry with the id, or wait for a load already running.
+     * The source is called outside the segment lock.
+     *
+     * @param id - key id
+     * @param segment - segment of the id
+     * @return Entry - or null if not found
+     * @throws InvalidKeyException if the stored key is malformed
+     */
+    private Entry load(String id, Segment segment) throws InvalidKeyException {
+        CompletableFuture<Entry> future = new CompletableFuture<>();
+        CompletableFuture<Entry> running = loading.putIfAbsent(id, future);
+
+        if (running != null) {
+            try {
+                return running.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof InvalidKeyException) {
+                    throw new InvalidKeyException(e.getCause().getMessage(), e.getCause());
+                }
+
+                if (e.getCause() instanceof Error) {
+                    throw (Error) e.getCause();
+                }
+
+                throw e;
+            }
+        }
+
+        try {
+            long start = System.nanoTime();
+            PrivateKey privateKey = source.getPrivateKey(id);
+            Entry entry = null;
+
+            if (privateKey != null) {
+                Setup setup = this.setup;
+
+                if (setup != null) {
+                    setup.apply(privateKey);
+                }
+
+                entry = new Entry(privateKey);
+
+                //Only cache the key if it was not invalidated while loading
+                synchronized (segment) {
+                    if (loading.get(id) == future) {
+                        segment.put(id, entry);
+                    }
+                }
+            }
+
+            loadTime.add(System.nanoTime() - start);
+            loads.increment();
+            future.complete(entry);
+
+            return entry;
+        } catch (InvalidKeyException | RuntimeException | Error e) {
+            //Fail the waiters too, or they would wait forever
+            loadFailures.increment();
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(id, future);
+        }
+    }
+
+    /**
+     * Segment of an id.
+     *
+     * @param id - key id
+     * @return Segment
+     */
+    private Segment segment(String id) {
+        int hash = id.hashCode();
+        return segments[Math.floorMod(hash ^ (hash >>> 16), segments.length)];
+    }
+
+    /**
+     * Setup run on each loaded private key, not on its public key.
+     */
+    @FunctionalInterface
+    public interface Setup {
+
+        /**
+         * Configure the key.
+         *
+         * @param privateKey - loaded private key
+         */
+        void apply(PrivateKey privateKey);
+    }
+
+    /**
+     * Cached handles of one key.
+     */
+    private static final class Entry {
+        private final PrivateKey privateKey;
+        private final PublicKey publicKey;
+
+        private Entry(PrivateKey privateKey) {
+            this.privateKey = privateKey;
+            this.publicKey = privateKey.getPublicKey();
+        }
+    }
+
+    /**
+     * LRU map of part of the ids, guarded by its own monitor.
+     */
+    private final class Segment {
+        private final int capacity;
+        private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+        private Segment(int capacity) {
+            this.capacity = capacity;
+        }
+
+        /**
+         * Get the entry with the id, marking it most recently used.
+         *
+         * @param id - key id
+         * @return Entry - or null if not cached
+         */
+        private Entry get(String id) {
+            return entries.get(id);
+        }
+
+        /**
+         * Cache the entry, evicting the least recently used entry when full.
+         *
+         * @param id - key id
+         * @param entry - entry to cache
+         */
+        private void put(String id, Entry entry) {
+            entries.put(id, entry);
+
+            if (entries.size() > capacity) {
+                Iterator<String> eldest = entries.keySet().iterator();
+                eldest.next();
+                eldest.remove();
+                evictions.increment();
+            }
+        }
+
+        /**
+         * Remove the entry with the id.
+         *
+         * @param id - key id
+         */
+        private void remove(String id) {
+            entries.remove(id);
+        }
+
+        /**
+         * Remove all entries.
+         */
+        private void clear() {
+            entries.clear();
+        }
+
+        /**
+         * Get the number of entries.
+         *
+         * @return int
+         */
+        private int size() {
+            return entries.size();
+        }
+    }
+
+}
@@ -0,0 +1,333 @@
+package com.captainredbeard.xor;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.security.InvalidKeyException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Standard key encodings.
+ * RSAPublicKey and RSAPrivateKey are PKCS#1 (RFC 8017 A.1),
+ * PrivateKeyInfo is PKCS#8 (RFC 5208) and SubjectPublicKeyInfo
+ * is X.509 (RFC 5280), the last two as produced by the JDK and OpenSSL.
+ *
+ * @author captain-redbeard
+ * @version 1.00
+ * @since 17/10/26
+ */
+public class KeyEncoding {
+    /**
+     * rsaEncryption, 1.2.840.113549.1.1.1
+     */
+    private static final byte[] RSA_ENCRYPTION = {
+            0x2A, (byte) 0x86, 0x48, (byte) 0x86, (byte) 0xF7, 0x0D, 0x01, 0x01, 0x01
+    };
+
+    private KeyEncoding() {
+    }
+
+    /**
+     * Encode a PKCS#1 RSAPublicKey.
+     *
+     * @param key - public key
+     * @return byte[]
+     */
+    public static byte[] encodeRSAPublicKey(PublicKey key) {
+        return new DERWriter().writeSequence(new DERWriter()
+                .writeInteger(key.modulus)
+                .writeInteger(key.publicExponent)
+        ).toByteArray();
+    }
+
+    /**
+     * Encode a PKCS#1 RSAPrivateKey, version 1 with otherPrimeInfos
+     * for multi-prime keys.
+     *
+     * @param key - private key
+     * @return byte[]
+     */
+    public static byte[] encodeRSAPrivateKey(PrivateKey key) {
+        OtherPrimeInfo[] others = key.getOtherPrimeInfos();
+        DERWriter contents = new DERWriter(16 * key.modulus.bitLength() / 8)
+                .writeInteger(others.length == 0 ? 0 : 1)
+                .writeInteger(key.modulus)
+                .writeInteger(key.publicExponent)
+                .writeInteger(key.privateExponent)
+                .writeInteger(key.getP())
+                .writeInteger(key.getQ())
+                .writeInteger(key.getDp())
+                .writeInteger(key.getDq())
+                .writeInteger(key.getQinv());
+
+        if (others.length > 0) {
+            DERWriter infos = new DERWriter();
+
+            for (OtherPrimeInfo other : others) {
+                infos.writeSequence(new DERWriter()
+                        .writeInteger(other.getPrime())
+                        .writeInteger(other.getExponent())
+                        .writeInteger(other.getCoefficient())
+                );
+            }
+
+            contents.writeSequence(infos);
+        }
+
+        return new DERWriter().writeSequence(contents).toByteArray();
+    }
+
+    /**
+     * Encode an X.509 SubjectPublicKeyInfo.
+     *
+     * @param key - public key
+     * @return byte[]
+     */
+    public static byte[] encodeSubjectPublicKeyInfo(PublicKey key) {
+        return new DERWriter().writeSequence(new DERWriter()
+                .writeSequence(algorithmIdentifier())
+                .writeBitString(encodeRSAPublicKey(key))
+        ).toByteArray();
+    }
+
+    /**
+     * Encode a PKCS#8 PrivateKeyInfo.
+     *
+     * @param key - private key
+     * @return byte[]
+     */
+    public static byte[] encodePrivateKeyInfo(PrivateKey key) {
+        return new DERWriter().writeSequence(new DERWriter()
+                .writeInteger(0)
+                .writeSequence(algorithmIdentifier())
+                .writeOctetString(encodeRSAPrivateKey(key))
+        ).toByteArray();
+    }
+
+    /**
+     * Decode a PKCS#1 RSAPublicKey.
+     *
+     * @param der - DER encoded key
+     * @param oaep - OAEP object for the key
+     * @return PublicKey
+     * @throws InvalidKeyException
+     */
+    public static PublicKey decodeRSAPublicKey(ByteBuffer der, OAEP oaep) throws InvalidKeyException {
+        DERReader key = new DERReader(der).readSequence();
+
+        return new PublicKey(key.readInteger(), key.readInteger(), oaep);
+    }
+
+    /**
+     * Decode a PKCS#1 RSAPrivateKey.
+     *
+     * @param der - DER encoded key
+     * @param oaep - OAEP object for the key
+     * @return PrivateKey
+     * @throws InvalidKeyException
+     */
+    public static PrivateKey decodeRSAPrivateKey(ByteBuffer der, OAEP oaep) throws InvalidKeyException {
+        DERReader key = new DERReader(der).readSequence();
+        int version = key.readVersion();
+
+        if (version > 1) {
+            throw new InvalidKeyException("Unsupported RSAPrivateKey version: " + version);
+        }
+
+        BigInteger n = key.readInteger();
+        BigInteger e = key.readInteger();
+        BigInteger d = key.readInteger();
+        BigInteger p = key.readInteger();
+        BigInteger q = key.readInteger();
+        BigInteger dp = key.readInteger();
+        BigInteger dq = key.readInteger();
+        BigInteger qinv = key.readInteger();
+        List<OtherPrimeInfo> others = new ArrayList<>();
+
+        if (version == 1) {
+            DERReader infos = key.readSequence();
+
+            while (infos.hasRemaining()) {
+                DERReader info = infos.readSequence();
+                others.add(new OtherPrimeInfo(info.readInteger(), info.readInteger(), info.readInteger()));
+            }
+
+            if (others.isEmpty()) {
+                throw new InvalidKeyException("Version 1 RSAPrivateKey without other primes");
+            }
+        }
+
+        return new PrivateKey(n, e, d, p, q, dp, dq, qinv, others.toArray(new OtherPrimeInfo[0]), oaep);
+    }
+
+    /**
+     * Decode an X.509 SubjectPublicKeyInfo.
+     *
+     * @param der - DER encoded key
+     * @param oaep - OAEP object for the key
+     * @return PublicKey
+     * @throws InvalidKeyException
+     */
+    public static PublicKey decodeSubjectPublicKeyInfo(ByteBuffer der, OAEP oaep) throws InvalidKeyException {
+        DERReader info = new DERReader(der).readSequence();
+        readAlgorithmIdentifier(info);
+
+        return decodeRSAPublicKey(info.readBitString(), oaep);
+    }
+
+    /**
+     * Decode a PKCS#8 PrivateKeyInfo.
+     *
+     * @param der - DER encoded key
+     * @param oaep - OAEP object for the key
+     * @return PrivateKey
+     * @throws InvalidKeyException
+     */
+    public static PrivateKey decodePrivateKeyInfo(ByteBuffer der, OAEP oaep) throws InvalidKeyException {
+        DERReader info = new DERReader(der).readSequence();
+        int version = info.readVersion();
+
+        if (version > 1) {
+            throw new InvalidKeyException("Unsupported PrivateKeyInfo version: " + version);
+        }
+
+        readAlgorithmIdentifier(info);
+
+        return decodeRSAPrivateKey(info.readOctetString(), oaep);
+    }
+
+    /**
+     * Encode a public key as a PEM PUBLIC KEY.
+     *
+     * @param key - public key
+     * @return String
+     */
+    public static String toPEM(PublicKey key) {
+        return PEM.encode(PEM.PUBLIC_KEY, encodeSubjectPublicKeyInfo(key));
+    }
+
+    /**
+     * Encode a private key as a PEM PRIVATE KEY.
+     *
+     * @param key - private key
+     * @return String
+     */
+    public static String toPEM(PrivateKey key) {
+        return PEM.encode(PEM.PRIVATE_KEY, encodePrivateKeyInfo(key));
+    }
+
+    /**
+     * Decode a PEM block holding a public key,
+     * RSA PUBLIC KEY or PUBLIC KEY.
+     *
+     * @param pem - PEM block
+     * @param oaep - OAEP object for the key
+     * @return PublicKey
+     * @throws InvalidKeyException
+     */
+    public static PublicKey decodePublicKey(PEM pem, OAEP oaep) throws InvalidKeyException {
+        ByteBuffer der = ByteBuffer.wrap(pem.getContent());
+
+        switch (pem.getType()) {
+            case PEM.RSA_PUBLIC_KEY:
+                return decodeRSAPublicKey(der, oaep);
+            case PEM.PUBLIC_KEY:
+                return decodeSubjectPublicKeyInfo(der, oaep);
+            default:
+                throw new InvalidKeyException("Not a public key: " + pem.getType());
+        }
+    }
+
+    /**
+     * Decode a PEM block holding a private key,
+     * RSA PRIVATE KEY or PRIVATE KEY.
+     *
+     * @param pem - PEM block
+     * @param oaep - OAEP object for the key
+     * @return PrivateKey
+     * @throws InvalidKeyException
+     */
+    public static PrivateKey decodePrivateKey(PEM pem, OAEP oaep) throws InvalidKeyException {
+        ByteBuffer der = ByteBuffer.wrap(pem.getContent());
+
+        switch (pem.getType()) {
+            case PEM.RSA_PRIVATE_KEY:
+                return decodeRSAPrivateKey(der, oaep);
+            case PEM.PRIVATE_KEY:
+                return decodePrivateKeyInfo(der, oaep);
+            default:
+                throw new InvalidKeyException("Not a private key: " + pem.getType());
+        }
+    }
+
+    /**
+     * Decode every private key in a PEM bundle, other blocks are skipped.
+     *
+     * @param text - PEM text
+     * @param oaep - OAEP object for the keys
+     * @return List<PrivateKey>
+     * @throws InvalidKeyException
+     */
+    public static List<PrivateKey> decodePrivateKeys(String text, OAEP oaep) throws InvalidKeyException {
+        List<PrivateKey> keys = new ArrayList<>();
+
+        for (PEM pem : PEM.decode(text)) {
+            if (pem.getType().equals(PEM.RSA_PRIVATE_KEY) || pem.getType().equals(PEM.PRIVATE_KEY)) {
+                keys.add(decodePrivateKey(pem, oaep));
+            }
+        }
+
+        return keys;
+    }
+
+    /**
+     * Decode every public key in a PEM bundle, other blocks are skipped.
+     *
+     * @param text - PEM text
+     * @param oaep - OAEP object for the keys
+     * @return List<PublicKey>
+     * @throws InvalidKeyException
+     */
+    public static List<PublicKey> decodePublicKeys(String text, OAEP oaep) throws InvalidKeyException {
+        List<PublicKey> keys = new ArrayList<>();
+
+        for (PEM pem : PEM.decode(text)) {
+            if (pem.getType().equals(PEM.RSA_PUBLIC_KEY) || pem.getType().equals(PEM.PUBLIC_KEY)) {
+                keys.add(decodePublicKey(pem, oaep));
+            }
+        }
+
+        return keys;
+    }
+
+    /**
+     * AlgorithmIdentifier contents for rsaEncryption with NULL parameters.
+     *
+     * @return DERWriter
+     */
+    private static DERWriter algorithmIdentifier() {
+        return new DERWriter(16)
+                .writeObjectIdentifier(RSA_ENCRYPTION)
+                .writeNull();
+    }
+
+    /**
+     * Read an AlgorithmIdentifier and check it is rsaEncryption.
+     *
+     * @param reader - reader positioned at the AlgorithmIdentifier
+     * @throws InvalidKeyException
+     */
+    private static void readAlgorithmIdentifier(DERReader reader) throws InvalidKeyException {
+        DERReader algorithm = reader.readSequence();
+
+        if (!algorithm.readObjectIdentifier().equals(ByteBuffer.wrap(RSA_ENCRYPTION))) {
+            throw new InvalidKeyException("Not an rsaEncryption key");
+        }
+
+        //Parameters are NULL, or absent
+        if (algorithm.hasRemaining()) {
+            algorithm.readNull();
+        }
+    }
+
+}
@@ -0,0 +1,255 @@
+package com.captainredbeard.xor;
+
+import java.math.BigInteger;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.security.InvalidKeyException;
+
+/**
+ * Compact binary key format.
+ *
+ * 'X' 'K' || version (1 byte) || type (1 byte) || count (2 bytes)
+ *   || count * (length (4 bytes) || unsigned big-endian integer)
+ *
+ * Public keys hold N, E. Private keys hold N, E, D, P, Q, DP, DQ, QINV
+ * followed by R, D, T for each other prime. All lengths are big-endian.
+ *
+ * @author captain-redbeard
+ * @version 1.00
+ * @since 17/10/26
+ */
+public class KeySerializer {
+    public static final int VERSION = 1;
+    public static final byte TYPE_PUBLIC = 1;
+    public static final byte TYPE_PRIVATE = 2;
+    private static final byte MAGIC_0 = 'X';
+    private static final byte MAGIC_1 = 'K';
+    private static final int HEADER_LENGTH = 6;
+
+    private KeySerializer() {
+    }
+
+    /**
+     * Encode a public key.
+     *
+     * @param key - public key
+     * @return byte[]
+     */
+    public static byte[] encode(PublicKey key) {
+        return encode(TYPE_PUBLIC, key.modulus, key.publicExponent);
+    }
+
+    /**
+     * Encode a private key.
+     *
+     * @param key - private key
+     * @return byte[]
+     */
+    public static byte[] encode(PrivateKey key) {
+        OtherPrimeInfo[] others = key.getOtherPrimeInfos();
+        BigInteger[] integers = new BigInteger[8 + 3 * others.length];
+        integers[0] = key.modulus;
+        integers[1] = key.publicExponent;
+        integers[2] = key.privateExponent;
+        integers[3] = key.getP();
+        integers[4] = key.getQ();
+        integers[5] = key.getDp();
+        integers[6] = key.getDq();
+        integers[7] = key.getQinv();
+
+        for (int i = 0; i < others.length; i++) {
+            integers[8 + 3 * i] = others[i].getPrime();
+            integers[9 + 3 * i] = others[i].getExponent();
+            integers[10 + 3 * i] = others[i].getCoefficient();
+        }
+
+        return encode(TYPE_PRIVATE, integers);
+    }
+
+    /**
+     * Encode a keypair, as its private key.
+     *
+     * @param keypair - keypair
+     * @return byte[]
+     */
+    public static byte[] encode(Keypair keypair) {
+        return encode(keypair.getPrivateKey());
+    }
+
+    /**
+     * Get the type of the encoded key at the buffer position.
+     *
+     * @param buffer - encoded key
+     * @return byte - TYPE_PUBLIC or TYPE_PRIVATE
+     * @throws InvalidKeyException
+     */
+    public static byte getType(ByteBuffer buffer) throws InvalidKeyException {
+        int start = buffer.position();
+
+        if (buffer.remaining() < HEADER_LENGTH
+                || buffer.get(start) != MAGIC_0
+                || buffer.get(start + 1) != MAGIC_1) {
+            throw new InvalidKeyException("Not an encoded key");
+        }
+
+        if (buffer.get(start + 2) != VERSION) {
+            throw new InvalidKeyException("Unsupported key version: " + buffer.get(start + 2));
+        }
+
+        return buffer.get(start + 3);
+    }
+
+    /**
+     * Decode a public key from the buffer position, advancing the position.
+     * A private key is decoded as its public key.
+     *
+     * @param buffer - encoded key
+     * @param oaep - OAEP object for the key
+     * @return PublicKey
+     * @throws InvalidKeyException
+     */
+    public static PublicKey decodePublicKey(ByteBuffer buffer, OAEP oaep) throws InvalidKeyException {
+        getType(buffer);
+        BigInteger[] integers = decode(buffer);
+
+        if (integers.length < 2) {
+            throw new InvalidKeyException("Truncated key");
+        }
+
+        return new PublicKey(integers[0], integers[1], oaep);
+    }
+
+    /**
+     * Decode a private key from the buffer position, advancing the position.
+     *
+     * @param buffer - encoded key
+     * @param oaep - OAEP object for the key
+     * @return PrivateKey
+     * @throws InvalidKeyException
+     */
+    public static PrivateKey decodePrivateKey(ByteBuffer buffer, OAEP oaep) throws InvalidKeyException {
+        if (getType(buffer) != TYPE_PRIVATE) {
+            throw new InvalidKeyException("Not a private key");
+        }
+
+        BigInteger[] integers = decode(buffer);
+
+        if (integers.length < 8 || (integers.length - 8) % 3 != 0) {
+            throw new InvalidKeyException("Invalid private key integer count: " + integers.length);
+        }
+
+        OtherPrimeInfo[] others = new OtherPrimeInfo[(integers.length - 8) / 3];
+
+        for (int i = 0; i < others.length; i++) {
+            others[i] = new OtherPrimeInfo(integers[8 + 3 * i], integers[9 + 3 * i], integers[10 + 3 * i]);
+        }
+
+        return new PrivateKey(
+                integers[0],
+                integers[1],
+                integers[2],
+                integers[3],
+                integers[4],
+                integers[5],
+                integers[6],
+                integers[7],
+                others,
+                oaep
+        );
+    }
+
+    /**
+     * Decode a keypair from the buffer position, advancing the position.
+     *
+     * @param buffer - encoded private key
+     * @param oaep - OAEP object for the keys
+     * @return Keypair
+     * @throws InvalidKeyException
+     */
+    public static Keypair decodeKeypair(ByteBuffer buffer, OAEP oaep) throws InvalidKeyException {
+        return new Keypair(decodePrivateKey(buffer, oaep));
+    }
+
+    /**
+     * Encode the integers with a header.
+     *
+     * @param type - key type
+     * @param integers - integers to encode
+     * @return byte[]
+     */
+    private static byte[] encode(byte type, BigInteger... integers) {
+        byte[][] magnitudes = new byte[integers.length][];
+        int length = HEADER_LENGTH;
+
+        for (int i = 0; i < integers.length; i++) {
+            magnitudes[i] = magnitude(integers[i]);
+            length += 4 + magnitudes[i].length;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(length)
+                .put(MAGIC_0)
+                .put(MAGIC_1)
+                .put((byte) VERSION)
+                .put(type)
+                .putShort((short) integers.length);
+
+        for (byte[] magnitude : magnitudes) {
+            buffer.putInt(magnitude.length).put(magnitude);
+        }
+
+        return buffer.array();
+    }
+
+    /**
+     * Decode the integers after the header.
+     *
+     * @param buffer - encoded key, positioned at the header
+     * @return BigInteger[]
+     * @throws InvalidKeyException
+     */
+    private static BigInteger[] decode(ByteBuffer buffer) throws InvalidKeyException {
+        try {
+            buffer.position(buffer.position() + 4);
+            BigInteger[] integers = new BigInteger[buffer.getShort() & 0xFFFF];
+
+            for (int i = 0; i < integers.length; i++) {
+                int length = buffer.getInt();
+
+                if (length < 0 || length > buffer.remaining()) {
+                    throw new InvalidKeyException("Invalid integer length: " + length);
+                }
+
+                byte[] magnitude = new byte[length];
+                buffer.get(magnitude);
+                integers[i] = new BigInteger(1, magnitude);
+            }
+
+            return integers;
+        } catch (BufferUnderflowException e) {
+            throw new InvalidKeyException("Truncated key", e);
+        }
+    }
+
+    /**
+     * Unsigned big-endian bytes of a non negative integer, without a sign byte.
+     *
+     * @param x - integer
+     * @return byte[]
+     */
+    private static byte[] magnitude(BigInteger x) {
+        if (x.signum() < 0) {
+            throw new IllegalArgumentException("Negative key integer");
+        }
+
+        byte[] bytes = x.toByteArray();
+
+        if (bytes.length > 1 && bytes[0] == 0) {
+            byte[] trimmed = new byte[bytes.length - 1];
+            System.arraycopy(bytes, 1, trimmed, 0, trimmed.length);
+            return trimmed;
+        }
+
+        return x.signum() == 0 ? new byte[0] : bytes;
+    }
+
+}
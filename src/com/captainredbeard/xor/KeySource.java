@@ -0,0 +1,25 @@
+package com.captainredbeard.xor;
+
+import java.security.InvalidKeyException;
+
+/**
+ * Source of private keys by id, such as a KeyStoreFile,
+ * which KeyCache loads misses from.
+ *
+ * @author captain-redbeard
+ * @version 1.00
+ * @since 17/10/26
+ */
+public interface KeySource {
+
+    /**
+     * Get the private key with the id.
+     * Called concurrently for different ids.
+     *
+     * @param id - key id
+     * @return PrivateKey - or null if not found
+     * @throws InvalidKeyException if the stored key is malformed
+     */
+    PrivateKey getPrivateKey(String id) throws InvalidKeyException;
+
+}
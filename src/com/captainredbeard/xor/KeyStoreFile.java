@@ -0,0 +1,344 @@
+package com.captainredbeard.xor;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.InvalidKeyException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keystore file of keys by id, read through a memory mapped buffer.
+ * Opening the file only checks the header, a lookup binary searches
+ * the sorted index and decodes the one record it finds.
+ *
+ * 'X' 'K' 'S' || version (1 byte) || count (4 bytes) || reserved (4 bytes)
+ *   || count * (id hash (8 bytes) || record offset (8 bytes)), sorted by hash
+ *   || records: id length (2 bytes) || UTF-8 id || key length (4 bytes) || key
+ *
+ * Keys are encoded with KeySerializer. The id hash is 64-bit FNV-1a,
+ * the id in the record is compared so hash collisions are handled.
+ * An open keystore is read only and thread safe.
+ *
+ * @author captain-redbeard
+ * @version 1.00
+ * @since 17/10/26
+ */
+public class KeyStoreFile implements KeySource, AutoCloseable {
+    public static final int VERSION = 1;
+    private static final int HEADER_LENGTH = 12;
+    private static final int INDEX_ENTRY_LENGTH = 16;
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final OAEP oaep;
+    private final int count;
+
+    /**
+     * Construct over an open channel.
+     *
+     * @param channel - file channel
+     * @param oaep - OAEP object for decoded keys
+     * @throws IOException
+     */
+    private KeyStoreFile(FileChannel channel, OAEP oaep) throws IOException {
+        this.channel = channel;
+        this.buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        this.oaep = oaep;
+
+        if (buffer.capacity() < HEADER_LENGTH
+                || buffer.get(0) != 'X'
+                || buffer.get(1) != 'K'
+                || buffer.get(2) != 'S') {
+            throw new IOException("Not a keystore file");
+        }
+
+        if (buffer.get(3) != VERSION) {
+            throw new IOException("Unsupported keystore version: " + buffer.get(3));
+        }
+
+        this.count = buffer.getInt(4);
+
+        if (count < 0 || HEADER_LENGTH + (long) count * INDEX_ENTRY_LENGTH > buffer.capacity()) {
+            throw new IOException("Truncated keystore index");
+        }
+    }
+
+    /**
+     * Open a keystore file.
+     *
+     * @param path - keystore file
+     * @param oaep - OAEP object for decoded keys
+     * @return KeyStoreFile
+     * @throws IOException
+     */
+    public static KeyStoreFile open(Path path, OAEP oaep) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+
+        try {
+            return new KeyStoreFile(channel, oaep);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Write a keystore file, replacing any existing file.
+     *
+     * @param path - keystore file
+     * @param keypairs - keypairs by id
+     * @throws IOException
+     */
+    public static void write(Path path, Map<String, Keypair> keypairs) throws IOException {
+        List<Entry> entries = new ArrayList<>(keypairs.size());
+
+        for (Map.Entry<String, Keypair> keypair : keypairs.entrySet()) {
+            byte[] id = keypair.getKey().getBytes(StandardCharsets.UTF_8);
+
+            if (id.length > 0xFFFF) {
+                throw new IllegalArgumentException("Key id too long");
+            }
+
+            entries.add(new Entry(hash(id), id, KeySerializer.encode(keypair.getValue())));
+        }
+
+        entries.sort((a, b) -> Long.compare(a.hash, b.hash));
+
+        //Record offsets follow the index
+        long offset = HEADER_LENGTH + (long) entries.size() * INDEX_ENTRY_LENGTH;
+        ByteBuffer index = ByteBuffer.allocate((int) offset)
+                .put((byte) 'X')
+                .put((byte) 'K')
+                .put((byte) 'S')
+                .put((byte) VERSION)
+                .putInt(entries.size())
+                .putInt(0);
+
+        for (Entry entry : entries) {
+            index.putLong(entry.hash).putLong(offset);
+            offset += 6 + entry.id.length + entry.key.length;
+        }
+
+        //A single mapped buffer is limited to 2GB
+        if (offset > Integer.MAX_VALUE) {
+            throw new IOException("Keystore too large");
+        }
+
+        try (FileChannel out = FileChannel.open(
+                path,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            index.flip();
+            writeFully(out, index);
+
+            for (Entry entry : entries) {
+                ByteBuffer record = ByteBuffer.allocate(6 + entry.id.length + entry.key.length)
+                        .putShort((short) entry.id.length)
+                        .put(entry.id)
+                        .putInt(entry.key.length)
+                        .put(entry.key);
+                record.flip();
+                writeFully(out, record);
+            }
+        }
+    }
+
+    /**
+     * Get the number of keys.
+     *
+     * @return int
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Check if the keystore holds a key with the id.
+     *
+     * @param id - key id
+     * @return boolean
+     * @throws InvalidKeyException if the record of the id is malformed
+     */
+    public boolean contains(String id) throws InvalidKeyException {
+        return find(id) != null;
+    }
+
+    /**
+     * Get the keypair with the id.
+     *
+     * @param id - key id
+     * @return Keypair - or null if not found
+     * @throws InvalidKeyException if the stored key is malformed
+     */
+    public Keypair getKeypair(String id) throws InvalidKeyException {
+        ByteBuffer key = find(id);
+        return key == null ? null : KeySerializer.decodeKeypair(key, oaep);
+    }
+
+    /**
+     * Get the private key with the id.
+     *
+     * @param id - key id
+     * @return PrivateKey - or null if not found
+     * @throws InvalidKeyException if the stored key is malformed
+     */
+    @Override
+    public PrivateKey getPrivateKey(String id) throws InvalidKeyException {
+        ByteBuffer key = find(id);
+        return key == null ? null : KeySerializer.decodePrivateKey(key, oaep);
+    }
+
+    /**
+     * Get the public key with the id.
+     * Only N and E are read from the record.
+     *
+     * @param id - key id
+     * @return PublicKey - or null if not found
+     * @throws InvalidKeyException if the stored key is malformed
+     */
+    public PublicKey getPublicKey(String id) throws InvalidKeyException {
+        ByteBuffer key = find(id);
+        return key == null ? null : KeySerializer.decodePublicKey(key, oaep);
+    }
+
+    /**
+     * Unmap is left to the garbage collector, the channel is closed.
+     *
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Find the encoded key with the id.
+     *
+     * @param id - key id
+     * @return ByteBuffer - slice over the encoded key, or null if not found
+     * @throws InvalidKeyException if a record runs past the end of the file
+     */
+    private ByteBuffer find(String id) throws InvalidKeyException {
+        byte[] target = id.getBytes(StandardCharsets.UTF_8);
+        long hash = hash(target);
+
+        //Lowest index entry with the hash
+        int low = 0;
+        int high = count;
+
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+
+            if (Long.compare(buffer.getLong(HEADER_LENGTH + mid * INDEX_ENTRY_LENGTH), hash) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+
+        //Check each record with the hash
+        for (int i = low; i < count; i++) {
+            int entry = HEADER_LENGTH + i * INDEX_ENTRY_LENGTH;
+
+            if (buffer.getLong(entry) != hash) {
+                break;
+            }
+
+            long offset = buffer.getLong(entry + 8);
+
+            if (offset < HEADER_LENGTH || offset + 2 > buffer.capacity()) {
+                throw new InvalidKeyException("Invalid record offset: " + offset);
+            }
+
+            int idLength = buffer.getShort((int) offset) & 0xFFFF;
+            long keyOffset = offset + 2 + idLength;
+
+            if (keyOffset + 4 > buffer.capacity()) {
+                throw new InvalidKeyException("Truncated record");
+            }
+
+            if (idLength == target.length && matches((int) offset + 2, target)) {
+                int keyLength = buffer.getInt((int) keyOffset);
+
+                if (keyLength < 0 || keyOffset + 4 + keyLength > buffer.capacity()) {
+                    throw new InvalidKeyException("Invalid key length: " + keyLength);
+                }
+
+                return buffer.slice((int) keyOffset + 4, keyLength);
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Compare the id in the buffer without copying it.
+     *
+     * @param offset - offset of the id
+     * @param id - id to compare to
+     * @return boolean
+     */
+    private boolean matches(int offset, byte[] id) {
+        for (int i = 0; i < id.length; i++) {
+            if (buffer.get(offset + i) != id[i]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * 64-bit FNV-1a hash of the id.
+     *
+     * @param id - id bytes
+     * @return long
+     */
+    private static long hash(byte[] id) {
+        long hash = FNV_OFFSET;
+
+        for (byte b : id) {
+            hash ^= b & 0xFF;
+            hash *= FNV_PRIME;
+        }
+
+        return hash;
+    }
+
+    /**
+     * Write the whole buffer to the channel.
+     *
+     * @param out - channel
+     * @param data - buffer to write
+     * @throws IOException
+     */
+    private static void writeFully(FileChannel out, ByteBuffer data) throws IOException {
+        while (data.hasRemaining()) {
+            out.write(data);
+        }
+    }
+
+    /**
+     * Keypair to be written.
+     */
+    private static final class Entry {
+        private final long hash;
+        private final byte[] id;
+        private final byte[] key;
+
+        private Entry(long hash, byte[] id, byte[] key) {
+            this.hash = hash;
+            this.id = id;
+            this.key = key;
+        }
+    }
+
+}
@@ -18,7 +18,9 @@ public class Keypair {
     private BigInteger dp;
     private BigInteger dq;
     private BigInteger qinv;
+    private OtherPrimeInfo[] otherPrimeInfos;
     private OAEP oaep;
+    private Metrics metrics;
 
     /**
      * Construct a keypair.
@@ -43,6 +45,34 @@ public class Keypair {
             BigInteger dq,
             BigInteger qinv,
             OAEP oaep) {
+        this(modulus, publicExponent, privateExponent, p, q, dp, dq, qinv, new OtherPrimeInfo[0], oaep);
+    }
+
+    /**
+     * Construct a multi-prime keypair.
+     *
+     * @param modulus - modulus r_1 * r_2 * ... * r_u
+     * @param publicExponent - public exponent, e, commonly 65537
+     * @param privateExponent - private exponent, d
+     * @param p - first prime number
+     * @param q - second prime number
+     * @param dp - d mod p-1
+     * @param dq - d mod q-1
+     * @param qinv inverse of q mod p
+     * @param otherPrimeInfos - third and later primes
+     * @param oaep - OAEP object
+     */
+    public Keypair(
+            BigInteger modulus,
+            BigInteger publicExponent,
+            BigInteger privateExponent,
+            BigInteger p,
+            BigInteger q,
+            BigInteger dp,
+            BigInteger dq,
+            BigInteger qinv,
+            OtherPrimeInfo[] otherPrimeInfos,
+            OAEP oaep) {
         this.modulus = modulus;
         this.publicExponent = publicExponent;
         this.privateExponent = privateExponent;
@@ -51,9 +81,30 @@ public class Keypair {
         this.dp = dp;
         this.dq = dq;
         this.qinv = qinv;
+        this.otherPrimeInfos = otherPrimeInfos;
         this.oaep = oaep;
     }
 
+    /**
+     * Construct a keypair from a private key.
+     *
+     * @param privateKey - private key
+     */
+    public Keypair(PrivateKey privateKey) {
+        this(
+                privateKey.modulus,
+                privateKey.publicExponent,
+                privateKey.privateExponent,
+                privateKey.getP(),
+                privateKey.getQ(),
+                privateKey.getDp(),
+                privateKey.getDq(),
+                privateKey.getQinv(),
+                privateKey.getOtherPrimeInfos(),
+                privateKey.getOAEP()
+        );
+    }
+
     /**
      * Get public key.
      * E, N
@@ -61,17 +112,29 @@ public class Keypair {
      * @return PublicKey
      */
     public PublicKey getPublicKey() {
-        return new PublicKey(modulus, publicExponent, oaep);
+        return new PublicKey(modulus, publicExponent, oaep).setMetrics(metrics);
     }
 
     /**
      * Get private key.
-     * N, E, D, P, Q, DP, DQ, QINV
+     * N, E, D, P, Q, DP, DQ, QINV, other primes
      *
      * @return PrivateKey
      */
     public PrivateKey getPrivateKey() {
-        return new PrivateKey(modulus, publicExponent, privateExponent, p, q, dp, dq, qinv, oaep);
+        return new PrivateKey(modulus, publicExponent, privateExponent, p, q, dp, dq, qinv, otherPrimeInfos, oaep)
+                .setMetrics(metrics);
+    }
+
+    /**
+     * Record operation latencies of keys from this keypair in metrics.
+     *
+     * @param metrics - metrics to record in, null to disable
+     * @return Keypair
+     */
+    public Keypair setMetrics(Metrics metrics) {
+        this.metrics = metrics;
+        return this;
     }
 
 }
@@ -0,0 +1,237 @@
+package com.captainredbeard.xor;
+
+import java.security.InvalidKeyException;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pool of pre-generated keypairs.
+ * Keeps up to capacity keypairs ready for each key length and refills
+ * in the background once a pool drops to the low water mark.
+ * When a pool is empty the keypair is generated on the calling thread.
+ *
+ * @author captain-redbeard
+ * @version 1.00
+ * @since 17/10/26
+ */
+public class KeypairPool implements AutoCloseable {
+    private final RSA rsa;
+    private final int capacity;
+    private final int lowWaterMark;
+    private final ExecutorService executor;
+    private final Map<Integer, BlockingQueue<Keypair>> pools = new ConcurrentHashMap<>();
+    private final Map<Integer, AtomicInteger> pending = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder refills = new LongAdder();
+    private final LongAdder refillTime = new LongAdder();
+    private final LongAdder refillFailures = new LongAdder();
+
+    public KeypairPool(RSA rsa) {
+        this(rsa, 8, 2, 1);
+    }
+
+    /**
+     * Construct a keypair pool.
+     *
+     * @param rsa - RSA used to generate keypairs
+     * @param capacity - maximum ready keypairs per key length
+     * @param lowWaterMark - refill when ready and pending keypairs drop to this
+     * @param threads - number of background refill threads
+     */
+    public KeypairPool(RSA rsa, int capacity, int lowWaterMark, int threads) {
+        if (capacity < 1 || lowWaterMark < 0 || lowWaterMark >= capacity || threads < 1) {
+            throw new IllegalArgumentException("Invalid pool configuration");
+        }
+
+        this.rsa = rsa;
+        this.capacity = capacity;
+        this.lowWaterMark = lowWaterMark;
+
+        AtomicInteger count = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "keypair-pool-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+    }
+
+    /**
+     * Take a keypair from the pool.
+     * Falls back to generating on the calling thread when the pool is empty.
+     *
+     * @param keyLength - desired key length
+     * @return Keypair
+     * @throws InvalidKeyException
+     */
+    public Keypair take(int keyLength) throws InvalidKeyException {
+        if (keyLength < rsa.MIN_KEY_LENGTH) {
+            throw new InvalidKeyException();
+        }
+
+        Keypair keypair = getPool(keyLength).poll();
+
+        if (keypair != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+
+        refill(keyLength, lowWaterMark);
+
+        return keypair != null ? keypair : rsa.generateKeypair(keyLength);
+    }
+
+    /**
+     * Fill the pool for the key length to capacity in the background.
+     *
+     * @param keyLength - key length to fill
+     * @throws InvalidKeyException
+     */
+    public void warm(int keyLength) throws InvalidKeyException {
+        if (keyLength < rsa.MIN_KEY_LENGTH) {
+            throw new InvalidKeyException();
+        }
+
+        refill(keyLength, capacity - 1);
+    }
+
+    /**
+     * Get the number of ready keypairs for the key length.
+     *
+     * @param keyLength - key length
+     * @return int
+     */
+    public int size(int keyLength) {
+        BlockingQueue<Keypair> pool = pools.get(keyLength);
+        return pool != null ? pool.size() : 0;
+    }
+
+    /**
+     * Number of takes served from the pool.
+     *
+     * @return long
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Number of takes that generated on the calling thread.
+     *
+     * @return long
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Number of keypairs generated in the background.
+     *
+     * @return long
+     */
+    public long getRefills() {
+        return refills.sum();
+    }
+
+    /**
+     * Number of background generations that failed.
+     *
+     * @return long
+     */
+    public long getRefillFailures() {
+        return refillFailures.sum();
+    }
+
+    /**
+     * Average time to generate a keypair in the background.
+     *
+     * @param unit - time unit of the result
+     * @return long
+     */
+    public long getAverageRefillTime(TimeUnit unit) {
+        long count = refills.sum();
+        return count > 0 ? unit.convert(refillTime.sum() / count, TimeUnit.NANOSECONDS) : 0;
+    }
+
+    /**
+     * Stop the background refill threads.
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Schedule background generation up to capacity if the ready
+     * and pending keypairs are at or below the threshold.
+     *
+     * @param keyLength - key length to refill
+     * @param threshold - refill at or below this
+     */
+    private void refill(int keyLength, int threshold) {
+        BlockingQueue<Keypair> pool = getPool(keyLength);
+        AtomicInteger inFlight = pending.computeIfAbsent(keyLength, k -> new AtomicInteger());
+
+        while (true) {
+            int scheduled = inFlight.get();
+
+            if (executor.isShutdown() || pool.size() + scheduled > threshold || pool.size() + scheduled >= capacity) {
+                return;
+            }
+
+            if (inFlight.compareAndSet(scheduled, scheduled + 1)) {
+                //Keep filling while under capacity
+                threshold = capacity - 1;
+
+                try {
+                    executor.execute(() -> generate(keyLength, pool, inFlight));
+                } catch (RejectedExecutionException e) {
+                    inFlight.decrementAndGet();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Generate a keypair into the pool.
+     *
+     * @param keyLength - key length
+     * @param pool - pool to add to
+     * @param inFlight - pending count to release
+     */
+    private void generate(int keyLength, BlockingQueue<Keypair> pool, AtomicInteger inFlight) {
+        try {
+            long start = System.nanoTime();
+            Keypair keypair = rsa.generateKeypair(keyLength);
+            refillTime.add(System.nanoTime() - start);
+            refills.increment();
+            pool.offer(keypair);
+        } catch (Exception e) {
+            refillFailures.increment();
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    /**
+     * Get the pool for the key length.
+     *
+     * @param keyLength - key length
+     * @return BlockingQueue<Keypair>
+     */
+    private BlockingQueue<Keypair> getPool(int keyLength) {
+        return pools.computeIfAbsent(keyLength, k -> new ArrayBlockingQueue<>(capacity));
+    }
+
+}
@@ -0,0 +1,204 @@
+package com.captainredbeard.xor;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock free latency histogram in nanoseconds.
+ * Log-linear buckets in the style of HdrHistogram, each power of two
+ * is split into 32 linear sub-buckets, so a recorded value is known
+ * to within about 3% over the whole range of long.
+ * Recording is a few atomic increments and never allocates.
+ *
+ * @author captain-redbeard
+ * @version 1.00
+ * @since 17/10/26
+ */
+public class LatencyHistogram {
+    private static final int SUB_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int BUCKETS = SUB_BUCKETS * (Long.SIZE - SUB_BITS) + SUB_BUCKETS;
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder total = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Record a latency.
+     *
+     * @param nanos - latency in nanoseconds, negative values are recorded as 0
+     */
+    public void record(long nanos) {
+        nanos = Math.max(0, nanos);
+        counts.incrementAndGet(index(nanos));
+        count.increment();
+        total.add(nanos);
+        max.accumulate(nanos);
+    }
+
+    /**
+     * Get the number of recorded latencies.
+     *
+     * @return long
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * Take a snapshot. Recording may continue while the snapshot
+     * is taken, so its count and buckets may differ slightly.
+     *
+     * @return Snapshot
+     */
+    public Snapshot snapshot() {
+        long[] buckets = new long[BUCKETS];
+
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] = counts.get(i);
+        }
+
+        return new Snapshot(buckets, count.sum(), total.sum(), max.get());
+    }
+
+    /**
+     * Clear all recorded latencies.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+
+        count.reset();
+        total.reset();
+        max.reset();
+    }
+
+    /**
+     * Bucket of a value.
+     * Values below 2 * SUB_BUCKETS have a bucket each, above that
+     * the exponent selects 32 buckets and the next 5 bits one of them.
+     *
+     * @param value - non negative value
+     * @return int
+     */
+    private static int index(long value) {
+        if (value < 2 * SUB_BUCKETS) {
+            return (int) value;
+        }
+
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - SUB_BITS)) - SUB_BUCKETS;
+
+        return SUB_BUCKETS * (exponent - SUB_BITS) + SUB_BUCKETS + sub;
+    }
+
+    /**
+     * Lowest value of a bucket.
+     *
+     * @param index - bucket
+     * @return long
+     */
+    private static long lowestValue(int index) {
+        if (index < 2 * SUB_BUCKETS) {
+            return index;
+        }
+
+        int exponent = (index - SUB_BUCKETS) / SUB_BUCKETS + SUB_BITS;
+        long sub = index % SUB_BUCKETS;
+
+        return (SUB_BUCKETS + sub) << (exponent - SUB_BITS);
+    }
+
+    /**
+     * Immutable copy of a histogram.
+     */
+    public static final class Snapshot {
+        private final long[] buckets;
+        private final long count;
+        private final long total;
+        private final long max;
+
+        private Snapshot(long[] buckets, long count, long total, long max) {
+            this.buckets = buckets;
+            this.count = count;
+            this.total = total;
+            this.max = max;
+        }
+
+        /**
+         * Get the number of recorded latencies.
+         *
+         * @return long
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * Get the sum of recorded latencies.
+         *
+         * @param unit - unit of the result
+         * @return double
+         */
+        public double getTotal(TimeUnit unit) {
+            return (double) total / unit.toNanos(1);
+        }
+
+        /**
+         * Get the mean latency.
+         *
+         * @param unit - unit of the result
+         * @return double
+         */
+        public double getMean(TimeUnit unit) {
+            return count == 0 ? 0 : getTotal(unit) / count;
+        }
+
+        /**
+         * Get the maximum latency.
+         *
+         * @param unit - unit of the result
+         * @return double
+         */
+        public double getMax(TimeUnit unit) {
+            return (double) max / unit.toNanos(1);
+        }
+
+        /**
+         * Get a latency percentile, the lowest value of the bucket
+         * holding it, capped at the maximum.
+         *
+         * @param percentile - percentile, 0 to 100
+         * @param unit - unit of the result
+         * @return double
+         */
+        public double getPercentile(double percentile, TimeUnit unit) {
+            long recorded = 0;
+
+            for (long bucket : buckets) {
+                recorded += bucket;
+            }
+
+            if (recorded == 0) {
+                return 0;
+            }
+
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100 * recorded));
+            long seen = 0;
+
+            for (int i = 0; i < buckets.length; i++) {
+                seen += buckets[i];
+
+                if (seen >= rank) {
+                    return (double) Math.min(lowestValue(i), max) / unit.toNanos(1);
+                }
+            }
+
+            return getMax(unit);
+        }
+    }
+
+}
@@ -0,0 +1,152 @@
+package com.captainredbeard.xor;
+
+/**
+ * MGF1 mask generation function, RFC 8017 B.2.1.
+ * T = Hash(mgfSeed || C(0)) || Hash(mgfSeed || C(1)) || ...
+ *
+ * The mask is produced incrementally, each call continues
+ * where the last one stopped, so masks of any length can be
+ * generated or XORed into a target without buffering them.
+ * An instance is not thread safe.
+ *
+ * @author captain-redbeard
+ * @version 1.00
+ * @since 17/10/26
+ */
+public class MGF1 {
+    private final String algorithm;
+    private final int hLen;
+    private final byte[] block;
+    private Digest digest;
+    private byte[] seed;
+    private int seedOff;
+    private int seedLen;
+    private int counter;
+    private int blockPos;
+
+    /**
+     * Construct MGF1 with the default hash, SHA-512.
+     *
+     * @param hLen - hash length, must be less than or equal to the digest length
+     */
+    public MGF1(int hLen) {
+        this(null, hLen);
+    }
+
+    /**
+     * Construct MGF1.
+     *
+     * @param algorithm - hash algorithm, default SHA-512
+     * @param hLen - hash length, must be less than or equal to the digest length
+     */
+    public MGF1(String algorithm, int hLen) {
+        this.algorithm = algorithm;
+        this.hLen = hLen;
+        this.block = new byte[hLen];
+    }
+
+    /**
+     * Start a new mask for the seed.
+     * The seed is not copied, it must not change until the mask is complete.
+     *
+     * @param mgfSeed - buffer holding the seed
+     * @param off - offset of seed
+     * @param len - length of seed
+     * @return MGF1
+     */
+    public MGF1 init(byte[] mgfSeed, int off, int len) {
+        this.digest = Digest.getEngine(algorithm);
+        this.seed = mgfSeed;
+        this.seedOff = off;
+        this.seedLen = len;
+        this.counter = 0;
+        this.blockPos = hLen;
+        return this;
+    }
+
+    /**
+     * XOR the next len bytes of the mask into the target.
+     *
+     * @param target - buffer to XOR the mask into
+     * @param off - offset in target
+     * @param len - number of bytes
+     */
+    public void xor(byte[] target, int off, int len) {
+        while (len > 0) {
+            if (blockPos == hLen) {
+                nextBlock();
+            }
+
+            //Last block may be partial
+            int n = Math.min(hLen - blockPos, len);
+
+            for (int i = 0; i < n; i++) {
+                target[off + i] ^= block[blockPos + i];
+            }
+
+            blockPos += n;
+            off += n;
+            len -= n;
+        }
+    }
+
+    /**
+     * Write the next len bytes of the mask to out.
+     *
+     * @param out - buffer to write the mask to
+     * @param off - offset in out
+     * @param len - number of bytes
+     */
+    public void generate(byte[] out, int off, int len) {
+        while (len > 0) {
+            if (blockPos == hLen) {
+                nextBlock();
+            }
+
+            int n = Math.min(hLen - blockPos, len);
+            System.arraycopy(block, blockPos, out, off, n);
+
+            blockPos += n;
+            off += n;
+            len -= n;
+        }
+    }
+
+    /**
+     * XOR a complete mask for the seed into the target.
+     *
+     * @param mgfSeed - buffer holding the seed
+     * @param seedOff - offset of seed
+     * @param seedLen - length of seed
+     * @param target - buffer to XOR the mask into
+     * @param off - offset in target
+     * @param maskLen - mask length
+     */
+    public void xor(byte[] mgfSeed, int seedOff, int seedLen, byte[] target, int off, int maskLen) {
+        init(mgfSeed, seedOff, seedLen).xor(target, off, maskLen);
+    }
+
+    /**
+     * Get the hash length.
+     *
+     * @return int
+     */
+    public int getHashLength() {
+        return hLen;
+    }
+
+    /**
+     * Hash (mgfSeed || C), C = I2OSP(counter, 4)
+     */
+    private void nextBlock() {
+        if (digest == null) {
+            throw new IllegalStateException("MGF1 not initialised");
+        }
+
+        digest.update(seed, seedOff, seedLen)
+                .updateInt(counter++)
+                .digest(block, 0, hLen);
+        blockPos = 0;
+    }
+
+}
@@ -0,0 +1,191 @@
+package com.captainredbeard.xor;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Operation latency metrics, by operation and key length.
+ * Metrics are opt in, set an instance on the keys and RSA objects
+ * to record, keys without one only pay a null check per operation.
+ * One instance can be shared by any number of keys, recording is
+ * lock free.
+ *
+ * @author captain-redbeard
+ * @version 1.00
+ * @since 17/10/26
+ */
+public class Metrics {
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+    private final ConcurrentMap<Integer, KeyMetrics> keyMetrics = new ConcurrentHashMap<>();
+
+    /**
+     * Instrumented operations.
+     */
+    public enum Operation {
+        KEYGEN,
+        ENCODE,
+        DECODE,
+        DECODE_CRT,
+        SIGN,
+        VERIFY,
+        PAD,
+        UNPAD,
+        ENCRYPT,
+        DECRYPT
+    }
+
+    /**
+     * Get the metrics for a key length.
+     *
+     * @param modulusBits - bit length of the modulus
+     * @return KeyMetrics
+     */
+    public KeyMetrics forKeyLength(int modulusBits) {
+        return keyMetrics.computeIfAbsent(getNominalKeyLength(modulusBits), KeyMetrics::new);
+    }
+
+    /**
+     * Get the nominal key length of a modulus.
+     * Generated moduli are a few bits longer than the requested
+     * key length, so lengths are rounded down to a multiple of 256.
+     *
+     * @param modulusBits - bit length of the modulus
+     * @return int
+     */
+    public static int getNominalKeyLength(int modulusBits) {
+        return Math.max(256, modulusBits / 256 * 256);
+    }
+
+    /**
+     * Snapshot all operations with recorded latencies.
+     *
+     * @return Map<Integer, Map<Operation, LatencyHistogram.Snapshot>> - by key length, then operation
+     */
+    public Map<Integer, Map<Operation, LatencyHistogram.Snapshot>> snapshot() {
+        Map<Integer, Map<Operation, LatencyHistogram.Snapshot>> snapshot = new TreeMap<>();
+
+        for (KeyMetrics metrics : keyMetrics.values()) {
+            Map<Operation, LatencyHistogram.Snapshot> operations = new EnumMap<>(Operation.class);
+
+            for (Operation operation : Operation.values()) {
+                LatencyHistogram histogram = metrics.get(operation);
+
+                if (histogram.getCount() > 0) {
+                    operations.put(operation, histogram.snapshot());
+                }
+            }
+
+            if (!operations.isEmpty()) {
+                snapshot.put(metrics.getKeyLength(), operations);
+            }
+        }
+
+        return snapshot;
+    }
+
+    /**
+     * Export a snapshot in the Prometheus text format,
+     * a summary of seconds by operation and key length.
+     *
+     * @return String
+     */
+    public String export() {
+        StringBuilder out = new StringBuilder();
+        out.append("# TYPE xor_rsa_operation_seconds summary\n");
+
+        for (Map.Entry<Integer, Map<Operation, LatencyHistogram.Snapshot>> key : snapshot().entrySet()) {
+            for (Map.Entry<Operation, LatencyHistogram.Snapshot> operation : key.getValue().entrySet()) {
+                String labels = "operation=\"" + operation.getKey().name().toLowerCase(Locale.ROOT)
+                        + "\",key_length=\"" + key.getKey() + "\"";
+                LatencyHistogram.Snapshot histogram = operation.getValue();
+
+                for (double quantile : QUANTILES) {
+                    out.append("xor_rsa_operation_seconds{").append(labels)
+                            .append(",quantile=\"").append(quantile).append("\"} ")
+                            .append(histogram.getPercentile(quantile * 100, TimeUnit.SECONDS)).append('\n');
+                }
+
+                out.append("xor_rsa_operation_seconds_count{").append(labels).append("} ")
+                        .append(histogram.getCount()).append('\n');
+                out.append("xor_rsa_operation_seconds_sum{").append(labels).append("} ")
+                        .append(histogram.getTotal(TimeUnit.SECONDS)).append('\n');
+                out.append("xor_rsa_operation_seconds_max{").append(labels).append("} ")
+                        .append(histogram.getMax(TimeUnit.SECONDS)).append('\n');
+            }
+        }
+
+        return out.toString();
+    }
+
+    /**
+     * Clear all recorded latencies.
+     */
+    public void reset() {
+        for (KeyMetrics metrics : keyMetrics.values()) {
+            for (Operation operation : Operation.values()) {
+                metrics.get(operation).reset();
+            }
+        }
+    }
+
+    /**
+     * Histograms of one key length, one per operation.
+     */
+    public static final class KeyMetrics {
+        private final int keyLength;
+        private final LatencyHistogram[] histograms = new LatencyHistogram[Operation.values().length];
+
+        private KeyMetrics(int keyLength) {
+            this.keyLength = keyLength;
+
+            for (int i = 0; i < histograms.length; i++) {
+                histograms[i] = new LatencyHistogram();
+            }
+        }
+
+        /**
+         * Record the latency of an operation.
+         *
+         * @param operation - operation
+         * @param nanos - latency in nanoseconds
+         */
+        public void record(Operation operation, long nanos) {
+            histograms[operation.ordinal()].record(nanos);
+        }
+
+        /**
+         * Record the latency of an operation which started at start.
+         *
+         * @param operation - operation
+         * @param start - System.nanoTime() at the start
+         */
+        public void recordSince(Operation operation, long start) {
+            record(operation, System.nanoTime() - start);
+        }
+
+        /**
+         * Get the histogram of an operation.
+         *
+         * @param operation - operation
+         * @return LatencyHistogram
+         */
+        public LatencyHistogram get(Operation operation) {
+            return histograms[operation.ordinal()];
+        }
+
+        /**
+         * Get the nominal key length.
+         *
+         * @return int
+         */
+        public int getKeyLength() {
+            return keyLength;
+        }
+    }
+
+}
@@ -0,0 +1,254 @@
+package com.captainredbeard.xor;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+
+/**
+ * Montgomery exponentiation for a fixed odd modulus.
+ * Per modulus constants (-n^-1 mod 2^64, R mod n, R^2 mod n) are
+ * computed once, numbers are held as little-endian long limbs and
+ * multiplied with CIOS Montgomery multiplication.
+ * Exponentiation uses fixed windows.
+ * An instance is immutable and thread safe.
+ *
+ * @author captain-redbeard
+ * @version 1.00
+ * @since 17/10/26
+ */
+public class Montgomery {
+    private static final int WINDOW = 5;
+    private final BigInteger modulus;
+    private final long[] n;
+    private final int len;
+    private final long n0inv;
+    private final long[] r2;
+    private final long[] one;
+
+    /**
+     * Construct Montgomery constants for the modulus.
+     *
+     * @param modulus - odd modulus
+     */
+    public Montgomery(BigInteger modulus) {
+        if (modulus.signum() <= 0 || !modulus.testBit(0)) {
+            throw new IllegalArgumentException("Modulus must be odd and positive");
+        }
+
+        this.modulus = modulus;
+        this.len = (modulus.bitLength() + 63) / 64;
+        this.n = toLimbs(modulus, len);
+
+        //-n^-1 mod 2^64, Newton iteration
+        long inv = n[0];
+        for (int i = 0; i < 6; i++) {
+            inv *= 2 - n[0] * inv;
+        }
+        this.n0inv = -inv;
+
+        BigInteger r = BigInteger.ONE.shiftLeft(64 * len);
+        this.one = toLimbs(r.mod(modulus), len);
+        this.r2 = toLimbs(r.multiply(r).mod(modulus), len);
+    }
+
+    /**
+     * Get the modulus.
+     *
+     * @return BigInteger
+     */
+    public BigInteger getModulus() {
+        return modulus;
+    }
+
+    /**
+     * Calculate base to the power of exponent mod modulus.
+     *
+     * @param base - base
+     * @param exponent - non negative exponent
+     * @return BigInteger
+     */
+    public BigInteger modPow(BigInteger base, BigInteger exponent) {
+        if (exponent.signum() < 0) {
+            throw new ArithmeticException("Negative exponent");
+        }
+
+        long[] t = new long[len + 2];
+        long[] x = toLimbs(base.mod(modulus), len);
+
+        //Table of base^i in Montgomery form, i < 2^WINDOW
+        long[][] table = new long[1 << WINDOW][];
+        table[0] = one.clone();
+        table[1] = new long[len];
+        multiply(x, r2, table[1], t);
+
+        for (int i = 2; i < table.length; i++) {
+            table[i] = new long[len];
+            multiply(table[i - 1], table[1], table[i], t);
+        }
+
+        long[] acc = one.clone();
+        long[] tmp = new long[len];
+        int bits = exponent.bitLength();
+        int windows = (bits + WINDOW - 1) / WINDOW;
+
+        for (int w = windows - 1; w >= 0; w--) {
+            //Square WINDOW times, not needed before the first window
+            if (w != windows - 1) {
+                for (int s = 0; s < WINDOW; s++) {
+                    multiply(acc, acc, tmp, t);
+                    long[] swap = acc;
+                    acc = tmp;
+                    tmp = swap;
+                }
+            }
+
+            int digit = 0;
+            for (int b = WINDOW - 1; b >= 0; b--) {
+                digit = (digit << 1) | (exponent.testBit(w * WINDOW + b) ? 1 : 0);
+            }
+
+            //Always multiply, the table entry for 0 is one
+            multiply(acc, table[digit], tmp, t);
+            long[] swap = acc;
+            acc = tmp;
+            tmp = swap;
+        }
+
+        //Out of Montgomery form
+        long[] unit = new long[len];
+        unit[0] = 1;
+        multiply(acc, unit, tmp, t);
+
+        return fromLimbs(tmp);
+    }
+
+    /**
+     * Montgomery multiplication, out = a * b * R^-1 mod n.
+     * CIOS method, out may not be a or b.
+     *
+     * @param a - first factor, less than n
+     * @param b - second factor, less than n
+     * @param out - result
+     * @param t - scratch of len + 2 limbs
+     */
+    private void multiply(long[] a, long[] b, long[] out, long[] t) {
+        Arrays.fill(t, 0);
+
+        for (int i = 0; i < len; i++) {
+            long bi = b[i];
+            long c = 0;
+
+            //t = t + a * b[i]
+            for (int j = 0; j < len; j++) {
+                long lo = a[j] * bi;
+                long hi = multiplyHigh(a[j], bi);
+                long sum = lo + t[j];
+                hi += Long.compareUnsigned(sum, lo) < 0 ? 1 : 0;
+                long sum2 = sum + c;
+                hi += Long.compareUnsigned(sum2, sum) < 0 ? 1 : 0;
+                t[j] = sum2;
+                c = hi;
+            }
+
+            long sum = t[len] + c;
+            t[len + 1] = Long.compareUnsigned(sum, c) < 0 ? 1 : 0;
+            t[len] = sum;
+
+            //t = (t + m * n) / 2^64
+            long m = t[0] * n0inv;
+            long lo = m * n[0];
+            c = multiplyHigh(m, n[0]) + (Long.compareUnsigned(lo + t[0], lo) < 0 ? 1 : 0);
+
+            for (int j = 1; j < len; j++) {
+                lo = m * n[j];
+                long hi = multiplyHigh(m, n[j]);
+                sum = lo + t[j];
+                hi += Long.compareUnsigned(sum, lo) < 0 ? 1 : 0;
+                long sum2 = sum + c;
+                hi += Long.compareUnsigned(sum2, sum) < 0 ? 1 : 0;
+                t[j - 1] = sum2;
+                c = hi;
+            }
+
+            sum = t[len] + c;
+            t[len - 1] = sum;
+            t[len] = t[len + 1] + (Long.compareUnsigned(sum, c) < 0 ? 1 : 0);
+        }
+
+        //Final subtraction if t >= n
+        boolean subtract = t[len] != 0;
+
+        if (!subtract) {
+            subtract = true;
+
+            for (int j = len - 1; j >= 0; j--) {
+                if (t[j] != n[j]) {
+                    subtract = Long.compareUnsigned(t[j], n[j]) > 0;
+                    break;
+                }
+            }
+        }
+
+        if (subtract) {
+            long borrow = 0;
+
+            for (int j = 0; j < len; j++) {
+                long diff = t[j] - n[j] - borrow;
+                borrow = (Long.compareUnsigned(t[j], n[j]) < 0 || (t[j] == n[j] && borrow != 0)) ? 1 : 0;
+                out[j] = diff;
+            }
+        } else {
+            System.arraycopy(t, 0, out, 0, len);
+        }
+    }
+
+    /**
+     * High 64 bits of the unsigned 128-bit product.
+     *
+     * @param x - first factor
+     * @param y - second factor
+     * @return long
+     */
+    private static long multiplyHigh(long x, long y) {
+        return Math.multiplyHigh(x, y) + ((x >> 63) & y) + ((y >> 63) & x);
+    }
+
+    /**
+     * Little-endian long limbs of a non negative number.
+     *
+     * @param x - number
+     * @param len - number of limbs
+     * @return long[]
+     */
+    private static long[] toLimbs(BigInteger x, int len) {
+        long[] limbs = new long[len];
+        byte[] bytes = x.toByteArray();
+
+        for (int i = 0; i < bytes.length && i < 8 * len; i++) {
+            limbs[i / 8] |= (bytes[bytes.length - 1 - i] & 0xFFL) << (8 * (i % 8));
+        }
+
+        return limbs;
+    }
+
+    /**
+     * Number from little-endian long limbs.
+     *
+     * @param limbs - limbs
+     * @return BigInteger
+     */
+    private static BigInteger fromLimbs(long[] limbs) {
+        byte[] bytes = new byte[8 * limbs.length];
+
+        for (int i = 0; i < limbs.length; i++) {
+            long limb = limbs[i];
+            int pos = bytes.length - 1 - 8 * i;
+
+            for (int k = 0; k < 8; k++) {
+                bytes[pos - k] = (byte) (limb >>> (8 * k));
+            }
+        }
+
+        return new BigInteger(1, bytes);
+    }
+
+}
@@ -1,12 +1,10 @@
 package com.captainredbeard.xor;
 
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
-import java.math.BigInteger;
+import java.nio.ByteBuffer;
 import java.security.SecureRandom;
 import java.util.Arrays;
-import java.util.LinkedList;
-import java.util.List;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 /**
  * EME-OAEP implementation.
@@ -16,7 +14,17 @@ import java.util.List;
  * @since 30/12/16
  */
 public class OAEP {
+    private static final byte[] DEFAULT_LABEL = "captain-redbeard".getBytes();
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+    private static final int LABEL_CACHE_SIZE = 16;
     private SecureRandom random = new SecureRandom();
+    private final Map<ByteBuffer, byte[]> labelCache = new LinkedHashMap<ByteBuffer, byte[]>(LABEL_CACHE_SIZE, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<ByteBuffer, byte[]> eldest) {
+            return size() > LABEL_CACHE_SIZE;
+        }
+    };
+    private volatile byte[] defaultLabelHash;
     private byte[] separator;
     public int hLen;
 
@@ -55,22 +63,15 @@ public class OAEP {
 
     /**
      * Add padding to the specified message.
-     * This method will loop over the add padding method
-     * until we have a padded message that will not be
-     * effected by converting to a BigInteger.
+     * The encoded message is a fixed length unsigned octet string,
+     * convert it with OS2IP, new BigInteger(1, em).
      *
      * @param data - data to add padding to
      * @param keyLength - modulus length in bytes
      * @return byte[]
      */
     public byte[] addPadding(byte[] data, int keyLength) {
-        byte[] padded = new byte[2];
-
-        while (padded[1] > -1) {
-            padded = addPadding(data, "captain-redbeard", keyLength);
-        }
-
-        return padded;
+        return addPadding(data, DEFAULT_LABEL, keyLength);
     }
 
     /**
@@ -81,7 +82,7 @@ public class OAEP {
      * @return byte[]
      */
     public byte[] removePadding(byte[] data, int keyLength) {
-        return removePadding(data, "captain-redbeard", keyLength);
+        return removePadding(data, DEFAULT_LABEL, keyLength);
     }
 
     /**
@@ -93,250 +94,306 @@ public class OAEP {
      * @return byte[]
      */
     public byte[] addPadding(byte[] M, String L, int k) {
-        int mLen = M.length;
-        byte[] DB;
+        return addPadding(M, L.getBytes(), k);
+    }
 
-        //Message length check
-        if (mLen > k - (2 * hLen) - 1 - separator.length) {
-            System.out.println("ERROR: message too long");
-            return null;
-        }
+    /**
+     * Add padding to the specified message.
+     *
+     * @param M - message to add padding to
+     * @param L - label to use for hash
+     * @param k - modulus length in bytes
+     * @return byte[]
+     */
+    public byte[] addPadding(byte[] M, byte[] L, int k) {
+        byte[] EM = new byte[k];
 
-        //Label length check
-        if (L.length() > k - (2 * hLen) - 1 - separator.length) {
-            System.out.println("ERROR: label too long");
+        if (encode(M, 0, M.length, L, EM, 0, k) < 0) {
             return null;
         }
 
-        //lHash = HASH(L);
-        byte[] lHash = Digest.getDigest(L.getBytes(), null, hLen);
+        //Return encoded message
+        return EM;
+    }
 
-        //PS = k - mLen - 2hLen - 2
-        byte[] PS = new byte[k - mLen - (2 * hLen) - 1 - separator.length];
+    /**
+     * Removed padding from the specified encoded message.
+     *
+     * @param EM - encoded message
+     * @param L - label to use for hash
+     * @param k - modulus length in bytes
+     * @return byte[]
+     */
+    public byte[] removePadding(byte[] EM, String L, int k) {
+        return removePadding(EM, L.getBytes(), k);
+    }
 
-        //DB = lHash || PS || 0x01 || M;     DB length  = k - hLen - 1;
-        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-        try {
-            //Contact byte arrays
-            outputStream.write(lHash);
-            outputStream.write(PS);
-            outputStream.write(separator);
-            outputStream.write(M);
-
-            //DB concatenated
-            DB = outputStream.toByteArray();
-
-            //Clean up
-            outputStream.flush();
-            outputStream.close();
-        } catch (IOException e) {
-            e.printStackTrace();
+    /**
+     * Removed padding from the specified encoded message.
+     *
+     * @param EM - encoded message
+     * @param L - label to use for hash
+     * @param k - modulus length in bytes
+     * @return byte[]
+     */
+    public byte[] removePadding(byte[] EM, byte[] L, int k) {
+        //Decode a right aligned copy, decoding is done in place,
+        //EM may be shorter or carry a sign byte if it came from BigInteger.toByteArray
+        byte[] buffer = new byte[k];
+        int length = Math.min(EM.length, k);
+        System.arraycopy(EM, EM.length - length, buffer, k - length, length);
+        int mOff = unpad(buffer, 0, L, k);
+
+        if (mOff < 0) {
             return null;
         }
 
-        //Random seed of length hLen
-        byte[] seed = new byte[hLen];
-        random.nextBytes(seed);
+        //Return message
+        return Arrays.copyOfRange(buffer, mOff, k);
+    }
+
+    /**
+     * Get the maximum message length for the modulus length.
+     *
+     * @param k - modulus length in bytes
+     * @return int
+     */
+    public int getMaxMessageLength(int k) {
+        return k - (2 * hLen) - 1 - separator.length;
+    }
 
-        //dbMask = MGF(seed, k - hLen -1)
-        byte[] dbMask = MGF1(seed, k - hLen - 1);
+    /**
+     * Encode a message into the out buffer using the default label.
+     *
+     * @param M - message to encode
+     * @param off - offset of message in M
+     * @param len - length of message
+     * @param out - buffer to write the encoded message to, k bytes from outOff
+     * @param outOff - offset in out
+     * @param k - modulus length in bytes
+     * @return int - bytes written, or -1 on error
+     */
+    public int encode(byte[] M, int off, int len, byte[] out, int outOff, int k) {
+        return encode(M, off, len, DEFAULT_LABEL, out, outOff, k);
+    }
 
-        //maskedDB = DB XOR dbMask
-        for (int i = 0; i < k - hLen - 1; i++) {
-            DB[i] ^= dbMask[i];
+    /**
+     * Encode a message into the out buffer.
+     * EM is built directly in out and the mask streams are XORed
+     * into it, nothing is allocated per call.
+     *
+     * @param M - message to encode
+     * @param off - offset of message in M
+     * @param len - length of message
+     * @param L - label to use for hash
+     * @param out - buffer to write the encoded message to, k bytes from outOff
+     * @param outOff - offset in out
+     * @param k - modulus length in bytes
+     * @return int - bytes written, or -1 on error
+     */
+    public int encode(byte[] M, int off, int len, byte[] L, byte[] out, int outOff, int k) {
+        //Message length check
+        if (len > getMaxMessageLength(k)) {
+            System.out.println("ERROR: message too long");
+            return -1;
         }
 
-        //seedMask = MGF1(maskedDB, hLen)
-        byte[] seedMask = MGF1(DB, hLen);
+        int seedOff = outOff + 1;
+        int dbOff = seedOff + hLen;
+        int dbLen = k - hLen - 1;
+        int psOff = dbOff + hLen;
+        int sepOff = outOff + k - len - separator.length;
 
-        //maskedSeed = seed XOR seedMask
-        for (int i = 0; i < hLen; i++) {
-            seed[i] ^= seedMask[i];
-        }
+        //DB = lHash || PS || 0x01 || M;     DB length  = k - hLen - 1;
+        System.arraycopy(getLabelHash(L), 0, out, dbOff, hLen);
+        Arrays.fill(out, psOff, sepOff, (byte) 0);
+        System.arraycopy(separator, 0, out, sepOff, separator.length);
+        System.arraycopy(M, off, out, sepOff + separator.length, len);
+
+        //Random seed of length hLen
+        Scratch scratch = SCRATCH.get();
+        MGF1 mgf = scratch.mgf(hLen);
+        byte[] seed = scratch.seed(hLen);
+        random.nextBytes(seed);
+        System.arraycopy(seed, 0, out, seedOff, hLen);
+
+        //maskedDB = DB XOR MGF(seed, k - hLen -1)
+        mgf.xor(out, seedOff, hLen, out, dbOff, dbLen);
+
+        //maskedSeed = seed XOR MGF1(maskedDB, hLen)
+        mgf.xor(out, dbOff, dbLen, out, seedOff, hLen);
 
         //EM = 0x00 || maskedSeed || maskedDB;      EM length of k
-        byte[] EM;
-        outputStream = new ByteArrayOutputStream();
-
-        try {
-            outputStream.write(0x00);
-            outputStream.write(seed);
-            outputStream.write(DB);
-
-            //EM concatenated
-            EM = outputStream.toByteArray();
-
-            //Clean up
-            outputStream.flush();
-            outputStream.close();
-        } catch(IOException ee) {
-            ee.printStackTrace();
-            return null;
-        }
+        out[outOff] = 0x00;
 
-        //Return encoded message
-        return EM;
+        return k;
     }
 
     /**
-     * Removed padding from the specified encoded message.
+     * Decode an encoded message into the out buffer using the default label.
      *
-     * @param EM - encoded message
-     * @param L - label to use for hash
+     * @param EM - encoded message, decoded in place
+     * @param emOff - offset of encoded message in EM
      * @param k - modulus length in bytes
-     * @return byte[]
+     * @param out - buffer to write the message to
+     * @param outOff - offset in out
+     * @return int - message length, or -1 if the encoded message is invalid
      */
-    public byte[] removePadding(byte[] EM, String L, int k) {
-        //Separate EM into Y; maskedSeed length of hLen; maskedDB length of k - hLen - 1
-        byte[] maskedSeed = new byte[hLen];
-        byte[] maskedDB = new byte[k - hLen - 1];
-        System.arraycopy(EM, 1, maskedSeed, 0, hLen);
-        System.arraycopy(EM, 1 + hLen, maskedDB, 0, k - hLen - 1);
+    public int decode(byte[] EM, int emOff, int k, byte[] out, int outOff) {
+        return decode(EM, emOff, DEFAULT_LABEL, k, out, outOff);
+    }
 
-        //seedMask = MGF1(maskedDB, hLen)
-        byte[] seedMask = MGF1(maskedDB, hLen);
+    /**
+     * Decode an encoded message into the out buffer.
+     * The mask streams are XORed into EM, so the encoded message
+     * is destroyed, nothing is allocated per call.
+     *
+     * @param EM - encoded message, decoded in place
+     * @param emOff - offset of encoded message in EM
+     * @param L - label to use for hash
+     * @param k - modulus length in bytes
+     * @param out - buffer to write the message to
+     * @param outOff - offset in out
+     * @return int - message length, or -1 if the encoded message is invalid
+     */
+    public int decode(byte[] EM, int emOff, byte[] L, int k, byte[] out, int outOff) {
+        int mOff = unpad(EM, emOff, L, k);
 
-        //seed = maskedSeed XOR seedMask
-        for (int i = 0; i < hLen; i++) {
-            maskedSeed[i] ^= seedMask[i];
+        if (mOff < 0) {
+            return -1;
         }
 
-        //dbMask = MGF1(seed, k - hLen - 1)
-        byte[] dbMask = MGF1(maskedSeed, k - hLen - 1);
+        int mLen = emOff + k - mOff;
 
-        //DB = maskedDB XOR dbMask
-        for (int i = 0; i < k - hLen - 1; i++) {
-            maskedDB[i] ^= dbMask[i];
+        if (mLen > out.length - outOff) {
+            System.out.println("ERROR: output buffer too small");
+            return -1;
         }
 
-        //Split to get actual message
-        List<byte[]> splitByte = splitByteArray(maskedDB, separator);
+        System.arraycopy(EM, mOff, out, outOff, mLen);
 
-        //Return message
-        return splitByte.get(splitByte.size() - 1);
+        return mLen;
     }
 
     /**
-     * @param x - non negative integer to be converted
-     * @param xLen - length of result
-     * @return byte[]
+     * Remove the masks from the encoded message in place
+     * and locate the message.
+     *
+     * @param EM - encoded message
+     * @param emOff - offset of encoded message in EM
+     * @param L - label to use for hash
+     * @param k - modulus length in bytes
+     * @return int - offset of the message in EM, or -1 if invalid
      */
-    private static byte[] I2OSP(BigInteger x, int xLen) {
-        byte[] temp = new byte[xLen];
-        BigInteger tfs = new BigInteger("256");
+    private int unpad(byte[] EM, int emOff, byte[] L, int k) {
+        int seedOff = emOff + 1;
+        int dbOff = seedOff + hLen;
+        int dbLen = k - hLen - 1;
+        int end = emOff + k;
+
+        if (dbLen < hLen + separator.length) {
+            return -1;
+        }
 
-        //Check x
-        if (x.compareTo(x.pow(xLen)) == 1) {
-            System.out.println("ERROR: integer too large");
-            return null;
+        MGF1 mgf = SCRATCH.get().mgf(hLen);
+
+        //seed = maskedSeed XOR MGF1(maskedDB, hLen)
+        mgf.xor(EM, dbOff, dbLen, EM, seedOff, hLen);
+
+        //DB = maskedDB XOR MGF1(seed, k - hLen - 1)
+        mgf.xor(EM, seedOff, hLen, EM, dbOff, dbLen);
+
+        //Check lHash, without exiting early
+        byte[] lHash = getLabelHash(L);
+        int diff = EM[emOff];
+
+        for (int i = 0; i < hLen; i++) {
+            diff |= lHash[i] ^ EM[dbOff + i];
         }
 
-        //x = x xLen–1 256 xLen–1 + x xLen–2 256 xLen–2 + ... + x 1 256 + x 0
-        for (int i = 0; i < xLen; i++) {
-            temp[i] = x.divideAndRemainder(tfs.pow(xLen - i))[0].byteValue();
+        if (diff != 0) {
+            return -1;
         }
 
-        return temp;
-    }
+        //Skip PS, then expect the separator
+        outer:
+        for (int i = dbOff + hLen; i <= end - separator.length; i++) {
+            for (int j = 0; j < separator.length; j++) {
+                if (EM[i + j] != separator[j]) {
+                    if (EM[i] != 0) {
+                        return -1;
+                    }
 
-    /**
-     * @param x - octet string to be converted
-     * @return BigInteger
-     */
-    private static BigInteger OS2IP(byte[] x) {
-        BigInteger temp = new BigInteger("0");
-        BigInteger tfs = new BigInteger("256");
+                    continue outer;
+                }
+            }
 
-        //x = x xLen–1 256 xLen–1 + x xLen–2 256 xLen–2 + ... + x 1 256 + x 0
-        for (int i = 0; i < x.length; i++) {
-            temp = temp.add(BigInteger.valueOf(0xFF & x[i - 1])).multiply(tfs.pow(x.length - i));
+            return i + separator.length;
         }
 
-        return temp;
+        return -1;
     }
 
     /**
-     * Mask generation function.
+     * Get the hash of the label, lHash = HASH(L).
+     * Hashes are cached per label, the default label is kept
+     * outside of the cache so it never needs a lookup.
      *
-     * @param mgfSeed - seed to use
-     * @param maskLen - returned mask length
-     * @return byte[]
+     * @param L - label
+     * @return byte[] - cached hash, must not be modified
      */
-    private byte[] MGF1(byte[] mgfSeed, int maskLen) {
-        ByteArrayOutputStream seedI2Stream = new ByteArrayOutputStream();
-        ByteArrayOutputStream hashStream = new ByteArrayOutputStream();
+    private byte[] getLabelHash(byte[] L) {
+        byte[] lHash;
 
-        //Check mask length
-        if (maskLen > Math.pow(2, hLen)) {
-            System.out.println("ERROR: mask too long");
-            return null;
-        }
+        if (L == DEFAULT_LABEL) {
+            lHash = defaultLabelHash;
 
-        for (int i = 0; i < Math.ceil(maskLen / hLen) - 1; i++) {
-            try {
-                seedI2Stream = new ByteArrayOutputStream();
-                seedI2Stream.write(mgfSeed);
-                //C = I2OSP(counter, 4)
-                seedI2Stream.write(I2OSP(BigInteger.valueOf(i), 4));
-                //hash(mgfSeed || C)
-                hashStream.write(Digest.getDigest(seedI2Stream.toByteArray(), null, hLen));
-
-                seedI2Stream.flush();
-                seedI2Stream.close();
-            } catch(Exception e ){
-                e.printStackTrace();
+            if (lHash == null || lHash.length != hLen) {
+                lHash = defaultLabelHash = Digest.getDigest(L, null, hLen);
             }
+
+            return lHash;
         }
 
-        //T = T || Hash (mfgSeed || C)
-        byte[] mask = Arrays.copyOfRange(hashStream.toByteArray(), 0, maskLen);
+        ByteBuffer key = ByteBuffer.wrap(L);
+
+        synchronized (labelCache) {
+            lHash = labelCache.get(key);
+        }
 
-        try {
-            seedI2Stream.flush();
-            seedI2Stream.close();
+        if (lHash == null || lHash.length != hLen) {
+            lHash = Digest.getDigest(L, null, hLen);
 
-            hashStream.flush();
-            hashStream.close();
-        } catch(Exception e ){
-            e.printStackTrace();;
+            synchronized (labelCache) {
+                labelCache.put(ByteBuffer.wrap(L.clone()), lHash);
+            }
         }
 
-        //Return mask
-        return mask;
+        return lHash;
     }
 
     /**
-     * Split byte array.
-     *
-     * @param array - array to split
-     * @param delimiter - delimiter to use
-     * @return List<byte[]>
+     * Per thread scratch buffers.
      */
-    private List<byte[]> splitByteArray(byte[] array, byte[] delimiter) {
-        List<byte[]> byteArrays = new LinkedList<>();
+    private static final class Scratch {
+        private byte[] seed = new byte[0];
+        private MGF1 mgf = new MGF1(0);
 
-        if (delimiter.length == 0) {
-            return byteArrays;
-        }
-
-        int begin = 0;
-
-        outer:
-        for (int i = 0; i < array.length - delimiter.length + 1; i++) {
-            for (int j = 0; j < delimiter.length; j++) {
-                if (array[i + j] != delimiter[j]) {
-                    continue outer;
-                }
+        private byte[] seed(int length) {
+            if (seed.length != length) {
+                seed = new byte[length];
             }
 
-            byteArrays.add(Arrays.copyOfRange(array, begin, i));
-            begin = i + delimiter.length;
+            return seed;
         }
 
-        byteArrays.add(Arrays.copyOfRange(array, begin, array.length));
+        private MGF1 mgf(int hLen) {
+            if (mgf.getHashLength() != hLen) {
+                mgf = new MGF1(hLen);
+            }
 
-        //Return
-        return byteArrays;
+            return mgf;
+        }
     }
 
 }
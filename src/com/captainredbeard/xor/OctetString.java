@@ -0,0 +1,89 @@
+package com.captainredbeard.xor;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+
+/**
+ * Integer and octet string conversion, RFC 8017 4.
+ * Octet strings are fixed length, unsigned and big-endian,
+ * so there is no sign byte and no leading zeros are lost.
+ *
+ * @author captain-redbeard
+ * @version 1.00
+ * @since 17/10/26
+ */
+public final class OctetString {
+
+    private OctetString() {
+    }
+
+    /**
+     * I2OSP, convert a non negative integer to an octet string of length len.
+     *
+     * @param x - integer
+     * @param len - length of the octet string
+     * @return byte[]
+     */
+    public static byte[] i2osp(BigInteger x, int len) {
+        byte[] out = new byte[len];
+        i2osp(x, out, 0, len);
+
+        return out;
+    }
+
+    /**
+     * I2OSP, convert a non negative integer to an octet string
+     * of length len in the out buffer.
+     *
+     * @param x - integer
+     * @param out - buffer to write to
+     * @param off - offset in out
+     * @param len - length of the octet string
+     * @throws IllegalArgumentException if x is negative or too large
+     */
+    public static void i2osp(BigInteger x, byte[] out, int off, int len) {
+        if (x.signum() < 0) {
+            throw new IllegalArgumentException("Negative integer");
+        }
+
+        byte[] bytes = x.toByteArray();
+
+        //Drop the sign byte
+        int start = bytes.length > 1 && bytes[0] == 0 ? 1 : 0;
+        int length = bytes.length - start;
+
+        if (x.signum() == 0) {
+            length = 0;
+        }
+
+        if (length > len) {
+            throw new IllegalArgumentException("Integer too large");
+        }
+
+        Arrays.fill(out, off, off + len - length, (byte) 0);
+        System.arraycopy(bytes, start, out, off + len - length, length);
+    }
+
+    /**
+     * OS2IP, convert an octet string to a non negative integer.
+     *
+     * @param x - octet string
+     * @return BigInteger
+     */
+    public static BigInteger os2ip(byte[] x) {
+        return new BigInteger(1, x);
+    }
+
+    /**
+     * OS2IP, convert an octet string to a non negative integer.
+     *
+     * @param x - buffer holding the octet string
+     * @param off - offset in x
+     * @param len - length of the octet string
+     * @return BigInteger
+     */
+    public static BigInteger os2ip(byte[] x, int off, int len) {
+        return new BigInteger(1, x, off, len);
+    }
+
+}
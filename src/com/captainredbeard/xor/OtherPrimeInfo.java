@@ -0,0 +1,57 @@
+package com.captainredbeard.xor;
+
+import java.math.BigInteger;
+
+/**
+ * Additional prime of a multi-prime RSA key, RFC 8017 OtherPrimeInfo.
+ *
+ * @author captain-redbeard
+ * @version 1.00
+ * @since 17/10/26
+ */
+public class OtherPrimeInfo {
+    private BigInteger prime;
+    private BigInteger exponent;
+    private BigInteger coefficient;
+
+    /**
+     * Construct other prime info.
+     *
+     * @param prime - prime, r_i
+     * @param exponent - d mod r_i-1, d_i
+     * @param coefficient - inverse of r_1 * ... * r_i-1 mod r_i, t_i
+     */
+    public OtherPrimeInfo(BigInteger prime, BigInteger exponent, BigInteger coefficient) {
+        this.prime = prime;
+        this.exponent = exponent;
+        this.coefficient = coefficient;
+    }
+
+    /**
+     * Get the prime, r_i.
+     *
+     * @return BigInteger
+     */
+    public BigInteger getPrime() {
+        return prime;
+    }
+
+    /**
+     * Get the CRT exponent, d_i.
+     *
+     * @return BigInteger
+     */
+    public BigInteger getExponent() {
+        return exponent;
+    }
+
+    /**
+     * Get the CRT coefficient, t_i.
+     *
+     * @return BigInteger
+     */
+    public BigInteger getCoefficient() {
+        return coefficient;
+    }
+
+}
@@ -0,0 +1,123 @@
+package com.captainredbeard.xor;
+
+import java.nio.charset.StandardCharsets;
+import java.security.InvalidKeyException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * PEM wrapping, RFC 7468.
+ * Text outside of BEGIN/END lines is ignored, so a bundle
+ * of keys and comments decodes to a list of blocks.
+ *
+ * @author captain-redbeard
+ * @version 1.00
+ * @since 17/10/26
+ */
+public class PEM {
+    public static final String RSA_PUBLIC_KEY = "RSA PUBLIC KEY";
+    public static final String RSA_PRIVATE_KEY = "RSA PRIVATE KEY";
+    public static final String PUBLIC_KEY = "PUBLIC KEY";
+    public static final String PRIVATE_KEY = "PRIVATE KEY";
+    private static final String BEGIN = "-----BEGIN ";
+    private static final String END = "-----END ";
+    private static final String DASHES = "-----";
+    private static final Base64.Encoder ENCODER = Base64.getMimeEncoder(64, "\n".getBytes(StandardCharsets.US_ASCII));
+    private static final Base64.Decoder DECODER = Base64.getMimeDecoder();
+    private final String type;
+    private final byte[] content;
+
+    /**
+     * Construct a PEM block.
+     *
+     * @param type - label, such as PRIVATE KEY
+     * @param content - DER encoded content
+     */
+    public PEM(String type, byte[] content) {
+        this.type = type;
+        this.content = content;
+    }
+
+    /**
+     * Get the label.
+     *
+     * @return String
+     */
+    public String getType() {
+        return type;
+    }
+
+    /**
+     * Get the DER encoded content.
+     *
+     * @return byte[]
+     */
+    public byte[] getContent() {
+        return content;
+    }
+
+    /**
+     * Encode as PEM text.
+     *
+     * @return String
+     */
+    @Override
+    public String toString() {
+        return encode(type, content);
+    }
+
+    /**
+     * Encode DER as PEM text.
+     *
+     * @param type - label, such as PRIVATE KEY
+     * @param der - DER encoded content
+     * @return String
+     */
+    public static String encode(String type, byte[] der) {
+        return BEGIN + type + DASHES + "\n"
+                + ENCODER.encodeToString(der) + "\n"
+                + END + type + DASHES + "\n";
+    }
+
+    /**
+     * Decode all PEM blocks in the text.
+     *
+     * @param text - PEM text
+     * @return List<PEM>
+     * @throws InvalidKeyException if a block is malformed
+     */
+    public static List<PEM> decode(String text) throws InvalidKeyException {
+        List<PEM> blocks = new ArrayList<>();
+        int position = 0;
+
+        while ((position = text.indexOf(BEGIN, position)) >= 0) {
+            int typeStart = position + BEGIN.length();
+            int typeEnd = text.indexOf(DASHES, typeStart);
+
+            if (typeEnd < 0) {
+                throw new InvalidKeyException("Unterminated PEM header");
+            }
+
+            String type = text.substring(typeStart, typeEnd);
+            String end = END + type + DASHES;
+            int contentStart = typeEnd + DASHES.length();
+            int contentEnd = text.indexOf(end, contentStart);
+
+            if (contentEnd < 0) {
+                throw new InvalidKeyException("Missing PEM footer for " + type);
+            }
+
+            try {
+                blocks.add(new PEM(type, DECODER.decode(text.substring(contentStart, contentEnd).trim())));
+            } catch (IllegalArgumentException e) {
+                throw new InvalidKeyException("Invalid PEM content for " + type, e);
+            }
+
+            position = contentEnd + end.length();
+        }
+
+        return blocks;
+    }
+
+}
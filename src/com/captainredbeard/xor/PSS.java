@@ -0,0 +1,219 @@
+package com.captainredbeard.xor;
+
+import java.security.SecureRandom;
+import java.util.Arrays;
+
+/**
+ * EMSA-PSS encoding, RFC 8017 9.1.
+ * M' = 0x00 * 8 || mHash || salt, H = Hash(M')
+ * EM = (PS || 0x01 || salt) XOR MGF1(H) || H || 0xbc
+ *
+ * The message hash is computed by the caller, see Signer and Verifier,
+ * so messages can be streamed. MGF1 uses the same hash as the message.
+ * An instance is thread safe.
+ *
+ * @author captain-redbeard
+ * @version 1.00
+ * @since 17/10/26
+ */
+public class PSS {
+    private static final byte TRAILER = (byte) 0xbc;
+    private static final byte[] PADDING = new byte[8];
+    private static final ThreadLocal<byte[]> SALT = ThreadLocal.withInitial(() -> new byte[0]);
+    private final SecureRandom random;
+    private final String algorithm;
+    private final int hLen;
+    private final int sLen;
+
+    public PSS() {
+        this(null, null, -1);
+    }
+
+    /**
+     * Construct PSS with specified random, hash and salt length.
+     *
+     * @param random - secure random
+     * @param algorithm - hash algorithm, default SHA-512
+     * @param saltLength - salt length in bytes, -1 for the hash length
+     */
+    public PSS(SecureRandom random, String algorithm, int saltLength) {
+        //Set secure random
+        if (random != null) {
+            this.random = random;
+        } else {
+            this.random = new SecureRandom();
+        }
+
+        this.algorithm = algorithm != null ? algorithm : Digest.DEFAULT_ALGORITHM;
+        this.hLen = Digest.getEngine(this.algorithm).getDigestLength();
+        this.sLen = saltLength >= 0 ? saltLength : hLen;
+    }
+
+    /**
+     * EMSA-PSS-ENCODE, write the encoded message into out.
+     *
+     * @param mHash - hash of the message
+     * @param emBits - maximal bit length of the encoded message, modBits - 1
+     * @param out - buffer to write the encoded message to, getEncodedLength(emBits) bytes from outOff
+     * @param outOff - offset in out
+     * @return int - bytes written, or -1 if emBits is too small
+     */
+    public int encode(byte[] mHash, int emBits, byte[] out, int outOff) {
+        int emLen = getEncodedLength(emBits);
+
+        if (emLen < hLen + sLen + 2) {
+            System.out.println("ERROR: encoding error");
+            return -1;
+        }
+
+        int dbLen = emLen - hLen - 1;
+        int hOff = outOff + dbLen;
+        byte[] salt = salt();
+        random.nextBytes(salt);
+
+        //H = Hash(0x00 * 8 || mHash || salt)
+        Digest.getEngine(algorithm)
+                .update(PADDING)
+                .update(mHash)
+                .update(salt, 0, sLen)
+                .digest(out, hOff, hLen);
+
+        //DB = PS || 0x01 || salt
+        int saltOff = outOff + dbLen - sLen;
+        Arrays.fill(out, outOff, saltOff - 1, (byte) 0);
+        out[saltOff - 1] = 0x01;
+        System.arraycopy(salt, 0, out, saltOff, sLen);
+
+        //maskedDB = DB XOR MGF1(H, dbLen)
+        new MGF1(algorithm, hLen).init(out, hOff, hLen).xor(out, outOff, dbLen);
+
+        //Clear the bits above emBits
+        out[outOff] &= (byte) (0xFF >>> (8 * emLen - emBits));
+        out[outOff + emLen - 1] = TRAILER;
+
+        return emLen;
+    }
+
+    /**
+     * EMSA-PSS-VERIFY, check the encoded message against the message hash.
+     * The encoded message is unmasked in place.
+     *
+     * @param mHash - hash of the message
+     * @param EM - buffer holding the encoded message, getEncodedLength(emBits) bytes from emOff
+     * @param emOff - offset in EM
+     * @param emBits - maximal bit length of the encoded message, modBits - 1
+     * @return boolean
+     */
+    public boolean verify(byte[] mHash, byte[] EM, int emOff, int emBits) {
+        int emLen = getEncodedLength(emBits);
+
+        if (emLen < hLen + sLen + 2 || EM[emOff + emLen - 1] != TRAILER) {
+            return false;
+        }
+
+        int dbLen = emLen - hLen - 1;
+        int hOff = emOff + dbLen;
+        int mask = 0xFF >>> (8 * emLen - emBits);
+
+        if ((EM[emOff] & 0xFF & ~mask) != 0) {
+            return false;
+        }
+
+        //DB = maskedDB XOR MGF1(H, dbLen)
+        new MGF1(algorithm, hLen).init(EM, hOff, hLen).xor(EM, emOff, dbLen);
+        EM[emOff] &= (byte) mask;
+
+        //PS must be zero, then 0x01
+        int saltOff = emOff + dbLen - sLen;
+
+        for (int i = emOff; i < saltOff - 1; i++) {
+            if (EM[i] != 0) {
+                return false;
+            }
+        }
+
+        if (EM[saltOff - 1] != 0x01) {
+            return false;
+        }
+
+        //H' = Hash(0x00 * 8 || mHash || salt)
+        byte[] expected = new byte[hLen];
+        Digest.getEngine(algorithm)
+                .update(PADDING)
+                .update(mHash)
+                .update(EM, saltOff, sLen)
+                .digest(expected, 0, hLen);
+
+        //Compare without exiting early
+        int diff = 0;
+
+        for (int i = 0; i < hLen; i++) {
+            diff |= expected[i] ^ EM[hOff + i];
+        }
+
+        return diff == 0;
+    }
+
+    /**
+     * Get the encoded message length, emLen = ceil(emBits / 8).
+     *
+     * @param emBits - maximal bit length of the encoded message
+     * @return int
+     */
+    public int getEncodedLength(int emBits) {
+        return (emBits + 7) / 8;
+    }
+
+    /**
+     * Create a digest engine for message hashes.
+     *
+     * @return Digest
+     */
+    public Digest newDigest() {
+        return Digest.newEngine(algorithm);
+    }
+
+    /**
+     * Get the hash algorithm.
+     *
+     * @return String
+     */
+    public String getAlgorithm() {
+        return algorithm;
+    }
+
+    /**
+     * Get the hash length.
+     *
+     * @return int
+     */
+    public int getHashLength() {
+        return hLen;
+    }
+
+    /**
+     * Get the salt length.
+     *
+     * @return int
+     */
+    public int getSaltLength() {
+        return sLen;
+    }
+
+    /**
+     * Salt buffer of the current thread.
+     *
+     * @return byte[]
+     */
+    private byte[] salt() {
+        byte[] salt = SALT.get();
+
+        if (salt.length != sLen) {
+            salt = new byte[sLen];
+            SALT.set(salt);
+        }
+
+        return salt;
+    }
+
+}
@@ -0,0 +1,268 @@
+package com.captainredbeard.xor;
+
+import java.math.BigInteger;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Prime search with an incremental small prime sieve.
+ *
+ * Candidates are searched in windows of odd numbers from a random
+ * odd start. The remainders of the window start by the small primes
+ * are computed once, then stepped by addition as the window moves,
+ * and used to strike out multiples of the small primes before any
+ * Miller-Rabin test. Miller-Rabin rounds follow FIPS 186-4 Table C.3
+ * for the prime size unless configured.
+ *
+ * @author captain-redbeard
+ * @version 1.00
+ * @since 17/10/26
+ */
+public class PrimeSearch {
+    private static final int SIEVE_LIMIT = 1 << 13;
+    private static final int[] SMALL_PRIMES = smallPrimes(SIEVE_LIMIT);
+    private static final BigInteger TWO = BigInteger.valueOf(2);
+    private final SecureRandom random;
+    private final int rounds;
+    private final int windowSize;
+
+    public PrimeSearch(SecureRandom random) {
+        this(random, 0, 0);
+    }
+
+    /**
+     * Construct a prime search.
+     *
+     * @param random - secure random
+     * @param rounds - Miller-Rabin rounds, 0 to choose by prime size
+     * @param windowSize - odd candidates per sieve window, 0 to choose by prime size
+     */
+    public PrimeSearch(SecureRandom random, int rounds, int windowSize) {
+        //Set secure random
+        if (random != null) {
+            this.random = random;
+        } else {
+            this.random = new SecureRandom();
+        }
+
+        this.rounds = rounds;
+        this.windowSize = windowSize;
+    }
+
+    /**
+     * Find a probable prime of the bit length.
+     *
+     * @param bitLength - bit length of the prime
+     * @return BigInteger
+     */
+    public BigInteger probablePrime(int bitLength) {
+        return probablePrime(bitLength, () -> false);
+    }
+
+    /**
+     * Find a probable prime of the bit length.
+     * Cancelled is checked before each candidate is tested.
+     *
+     * @param bitLength - bit length of the prime
+     * @param cancelled - stop searching once this returns true
+     * @return BigInteger - the prime, or null if cancelled
+     */
+    public BigInteger probablePrime(int bitLength, BooleanSupplier cancelled) {
+        if (bitLength < 32) {
+            throw new IllegalArgumentException("Bit length must be at least 32");
+        }
+
+        int window = windowSize > 0 ? windowSize : bitLength;
+        int mrRounds = rounds > 0 ? rounds : getRounds(bitLength);
+        int[] remainders = new int[SMALL_PRIMES.length];
+        boolean[] composite = new boolean[window];
+        BigInteger step = BigInteger.valueOf(2L * window);
+
+        while (!cancelled.getAsBoolean()) {
+            //Random odd start with the top bit set
+            BigInteger start = new BigInteger(bitLength, random)
+                    .setBit(bitLength - 1)
+                    .setBit(0);
+
+            remainders(start, remainders);
+
+            //Move the window until it would overflow the bit length
+            while (start.add(step).bitLength() == bitLength) {
+                sieve(remainders, composite);
+
+                for (int i = 0; i < window; i++) {
+                    if (composite[i]) {
+                        continue;
+                    }
+
+                    if (cancelled.getAsBoolean()) {
+                        return null;
+                    }
+
+                    BigInteger candidate = start.add(BigInteger.valueOf(2L * i));
+
+                    if (isProbablePrime(candidate, mrRounds, random)) {
+                        return candidate;
+                    }
+                }
+
+                //Next window, remainders stepped rather than recomputed
+                start = start.add(step);
+
+                for (int j = 0; j < SMALL_PRIMES.length; j++) {
+                    remainders[j] = (int) ((remainders[j] + 2L * window) % SMALL_PRIMES[j]);
+                }
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Miller-Rabin rounds for a prime of the bit length.
+     * FIPS 186-4 Table C.3, Miller-Rabin tests only.
+     *
+     * @param bitLength - bit length of the prime
+     * @return int
+     */
+    public static int getRounds(int bitLength) {
+        if (bitLength >= 1536) {
+            return 4;
+        } else if (bitLength >= 1024) {
+            return 5;
+        } else if (bitLength >= 512) {
+            return 7;
+        }
+
+        return 40;
+    }
+
+    /**
+     * Miller-Rabin probabilistic primality test with random bases.
+     *
+     * @param n - odd number to test, greater than 3
+     * @param rounds - number of rounds
+     * @param random - source of bases
+     * @return boolean
+     */
+    public static boolean isProbablePrime(BigInteger n, int rounds, SecureRandom random) {
+        //n - 1 = d * 2^s
+        BigInteger nMinusOne = n.subtract(BigInteger.ONE);
+        int s = nMinusOne.getLowestSetBit();
+        BigInteger d = nMinusOne.shiftRight(s);
+        BigInteger limit = n.subtract(TWO);
+
+        outer:
+        for (int i = 0; i < rounds; i++) {
+            //Base in [2, n - 2]
+            BigInteger a;
+            do {
+                a = new BigInteger(n.bitLength(), random);
+            } while (a.compareTo(TWO) < 0 || a.compareTo(limit) > 0);
+
+            BigInteger x = a.modPow(d, n);
+
+            if (x.equals(BigInteger.ONE) || x.equals(nMinusOne)) {
+                continue;
+            }
+
+            for (int r = 1; r < s; r++) {
+                x = x.multiply(x).mod(n);
+
+                if (x.equals(nMinusOne)) {
+                    continue outer;
+                }
+
+                if (x.equals(BigInteger.ONE)) {
+                    return false;
+                }
+            }
+
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Mark the window candidates divisible by a small prime.
+     * Candidate i is start + 2i, it is divisible by p when
+     * i = -start / 2 mod p.
+     *
+     * @param remainders - start mod each small prime
+     * @param composite - window to mark
+     */
+    private static void sieve(int[] remainders, boolean[] composite) {
+        Arrays.fill(composite, false);
+
+        for (int j = 0; j < SMALL_PRIMES.length; j++) {
+            int p = SMALL_PRIMES[j];
+            int first = (int) ((long) ((p - remainders[j]) % p) * ((p + 1) / 2) % p);
+
+            for (int i = first; i < composite.length; i += p) {
+                composite[i] = true;
+            }
+        }
+    }
+
+    /**
+     * Remainders of n by each small prime, from the int words of n.
+     *
+     * @param n - number to reduce
+     * @param remainders - remainders to fill
+     */
+    private static void remainders(BigInteger n, int[] remainders) {
+        byte[] bytes = n.toByteArray();
+        int[] words = new int[(bytes.length + 3) / 4];
+
+        //Big-endian int words
+        for (int i = 0; i < bytes.length; i++) {
+            int pos = bytes.length - 1 - i;
+            words[words.length - 1 - i / 4] |= (bytes[pos] & 0xFF) << (8 * (i % 4));
+        }
+
+        for (int j = 0; j < SMALL_PRIMES.length; j++) {
+            long p = SMALL_PRIMES[j];
+            long r = 0;
+
+            for (int word : words) {
+                r = ((r << 32) | (word & 0xFFFFFFFFL)) % p;
+            }
+
+            remainders[j] = (int) r;
+        }
+    }
+
+    /**
+     * Odd primes below the limit, sieve of Eratosthenes.
+     *
+     * @param limit - upper limit
+     * @return int[]
+     */
+    private static int[] smallPrimes(int limit) {
+        boolean[] composite = new boolean[limit];
+        int count = 0;
+
+        for (int i = 3; i < limit; i += 2) {
+            if (!composite[i]) {
+                count++;
+
+                for (long m = (long) i * i; m < limit; m += 2L * i) {
+                    composite[(int) m] = true;
+                }
+            }
+        }
+
+        int[] primes = new int[count];
+
+        for (int i = 3, j = 0; i < limit; i += 2) {
+            if (!composite[i]) {
+                primes[j++] = i;
+            }
+        }
+
+        return primes;
+    }
+
+}
@@ -1,6 +1,18 @@
 package com.captainredbeard.xor;
 
+import javax.crypto.BadPaddingException;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * RSA private key.
@@ -10,6 +22,10 @@ import java.math.BigInteger;
  * @since 29/12/16
  */
 public class PrivateKey {
+    public static final int BLINDING_REFRESH = 32;
+    private static final int BLINDING_POOL_SIZE = 4;
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+    private static final SecureRandom BLINDING_RANDOM = new SecureRandom();
     public BigInteger modulus;
     public BigInteger publicExponent;
     public BigInteger privateExponent;
@@ -18,8 +34,19 @@ public class PrivateKey {
     private BigInteger dp;
     private BigInteger dq;
     private BigInteger qinv;
+    private OtherPrimeInfo[] otherPrimeInfos;
     private int keyLen;
     private OAEP oaep;
+    private volatile Montgomery[] montgomery;
+    private volatile boolean montgomeryCRT;
+    private volatile Executor crtExecutor;
+    private volatile boolean blinding = true;
+    private final AtomicReferenceArray<Blinding> blindingPairs = new AtomicReferenceArray<>(BLINDING_POOL_SIZE);
+    private volatile boolean faultCheck;
+    private volatile PublicKey faultCheckKey;
+    private final LongAdder faultChecks = new LongAdder();
+    private final LongAdder faultsDetected = new LongAdder();
+    private volatile Metrics.KeyMetrics metrics;
 
     /**
      * Construct a private key.
@@ -44,6 +71,34 @@ public class PrivateKey {
             BigInteger dq,
             BigInteger qinv,
             OAEP oaep) {
+        this(modulus, publicExponent, privateExponent, p, q, dp, dq, qinv, new OtherPrimeInfo[0], oaep);
+    }
+
+    /**
+     * Construct a multi-prime private key.
+     *
+     * @param modulus - modulus r_1 * r_2 * ... * r_u
+     * @param publicExponent - public exponent, e
+     * @param privateExponent - private exponent, d
+     * @param p - first prime number
+     * @param q - second prime number
+     * @param dp - d mod p-1
+     * @param dq - d mod q-1
+     * @param qinv inverse of q mod p
+     * @param otherPrimeInfos - third and later primes
+     * @param oaep - OAEP object
+     */
+    public PrivateKey(
+            BigInteger modulus,
+            BigInteger publicExponent,
+            BigInteger privateExponent,
+            BigInteger p,
+            BigInteger q,
+            BigInteger dp,
+            BigInteger dq,
+            BigInteger qinv,
+            OtherPrimeInfo[] otherPrimeInfos,
+            OAEP oaep) {
         this.modulus = modulus;
         this.publicExponent = publicExponent;
         this.privateExponent = privateExponent;
@@ -52,6 +107,7 @@ public class PrivateKey {
         this.dp = dp;
         this.dq = dq;
         this.qinv = qinv;
+        this.otherPrimeInfos = otherPrimeInfos;
         this.keyLen = (int) Math.ceil(modulus.bitLength() / 8);
         this.oaep = oaep;
     }
@@ -64,12 +120,221 @@ public class PrivateKey {
      * @return BigInteger
      */
     public BigInteger decode(BigInteger c) {
-        return new BigInteger(
-                oaep.removePadding(
-                        decodeCRT(c).toByteArray(),
-                        keyLen
-                )
-        );
+        Metrics.KeyMetrics metrics = this.metrics;
+        long start = metrics != null ? System.nanoTime() : 0;
+        byte[] em = OctetString.i2osp(crt(c), keyLen);
+        long unpad = metrics != null ? System.nanoTime() : 0;
+        BigInteger m = new BigInteger(oaep.removePadding(em, keyLen));
+
+        if (metrics != null) {
+            metrics.recordSince(Metrics.Operation.UNPAD, unpad);
+            metrics.recordSince(Metrics.Operation.DECODE, start);
+        }
+
+        return m;
+    }
+
+    /**
+     * Decrypt the cipher text and remove OAEP padding, RSAES-OAEP.
+     *
+     * @param c - cipher text of getModulusLength() bytes
+     * @return byte[] - message
+     * @throws BadPaddingException if the cipher text is invalid
+     */
+    public byte[] decrypt(byte[] c) throws BadPaddingException {
+        Scratch scratch = SCRATCH.get();
+        byte[] m = scratch.m(keyLen);
+        int mLen = decrypt(c, 0, c.length, scratch, m, 0);
+
+        return Arrays.copyOf(m, mLen);
+    }
+
+    /**
+     * Decrypt the cipher text into the out buffer.
+     *
+     * @param c - buffer holding the cipher text
+     * @param off - offset of cipher text in c
+     * @param len - length of cipher text, getModulusLength() bytes
+     * @param out - buffer to write the message to
+     * @param outOff - offset in out
+     * @return int - message length
+     * @throws BadPaddingException if the cipher text is invalid
+     */
+    public int decrypt(byte[] c, int off, int len, byte[] out, int outOff) throws BadPaddingException {
+        Scratch scratch = SCRATCH.get();
+        byte[] m = scratch.m(keyLen);
+        int mLen = decrypt(c, off, len, scratch, m, 0);
+
+        if (mLen > out.length - outOff) {
+            throw new IllegalArgumentException("Output buffer too small");
+        }
+
+        System.arraycopy(m, 0, out, outOff, mLen);
+
+        return mLen;
+    }
+
+    /**
+     * Decrypt the remaining bytes of c into out.
+     * Both positions are advanced.
+     *
+     * @param c - cipher text
+     * @param out - buffer to write the message to
+     * @return int - message length
+     * @throws BadPaddingException if the cipher text is invalid
+     */
+    public int decrypt(ByteBuffer c, ByteBuffer out) throws BadPaddingException {
+        Scratch scratch = SCRATCH.get();
+        byte[] m = scratch.m(keyLen);
+        int mLen;
+
+        if (c.hasArray()) {
+            mLen = decrypt(c.array(), c.arrayOffset() + c.position(), c.remaining(), scratch, m, 0);
+        } else {
+            byte[] cipher = new byte[c.remaining()];
+            c.get(c.position(), cipher);
+            mLen = decrypt(cipher, 0, cipher.length, scratch, m, 0);
+        }
+
+        out.put(m, 0, mLen);
+        c.position(c.limit());
+
+        return mLen;
+    }
+
+    /**
+     * Decrypt with scratch buffers.
+     * OS2IP reads the cipher text in place and I2OSP writes the
+     * encoded message into scratch, there is no sign byte handling.
+     *
+     * @param c - buffer holding the cipher text
+     * @param off - offset of cipher text in c
+     * @param len - length of cipher text
+     * @param scratch - buffers of the current thread
+     * @param out - buffer to write the message to, at least keyLen bytes from outOff
+     * @param outOff - offset in out
+     * @return int - message length
+     * @throws BadPaddingException if the cipher text is invalid
+     */
+    private int decrypt(byte[] c, int off, int len, Scratch scratch, byte[] out, int outOff)
+            throws BadPaddingException {
+        if (len != getModulusLength()) {
+            throw new BadPaddingException("Decryption error");
+        }
+
+        Metrics.KeyMetrics metrics = this.metrics;
+        long start = metrics != null ? System.nanoTime() : 0;
+        BigInteger ci = OctetString.os2ip(c, off, len);
+
+        if (ci.compareTo(modulus) >= 0) {
+            throw new BadPaddingException("Decryption error");
+        }
+
+        BigInteger em = crt(ci);
+
+        //An encoded message always fits in keyLen bytes
+        if (em.bitLength() > 8 * keyLen) {
+            throw new BadPaddingException("Decryption error");
+        }
+
+        byte[] buffer = scratch.em(keyLen);
+        OctetString.i2osp(em, buffer, 0, keyLen);
+        long unpad = metrics != null ? System.nanoTime() : 0;
+        int mLen = oaep.decode(buffer, 0, keyLen, out, outOff);
+
+        if (mLen < 0) {
+            throw new BadPaddingException("Decryption error");
+        }
+
+        if (metrics != null) {
+            metrics.recordSince(Metrics.Operation.UNPAD, unpad);
+            metrics.recordSince(Metrics.Operation.DECRYPT, start);
+        }
+
+        return mLen;
+    }
+
+    /**
+     * Get the length of the modulus, and of cipher texts, in bytes.
+     *
+     * @return int
+     */
+    public int getModulusLength() {
+        return (modulus.bitLength() + 7) / 8;
+    }
+
+    /**
+     * Decode a batch of ciphers using CRT on the common ForkJoinPool.
+     * Expects ciphers to be padded using OAEP.
+     *
+     * @param c - cipher texts
+     * @return BatchResult<BigInteger>
+     */
+    public BatchResult<BigInteger> decodeBatch(List<BigInteger> c) {
+        return decodeBatch(c.toArray(new BigInteger[0]), ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Decode a batch of ciphers using CRT.
+     * Expects ciphers to be padded using OAEP.
+     *
+     * @param c - cipher texts
+     * @param executor - executor to decode on
+     * @return BatchResult<BigInteger>
+     */
+    public BatchResult<BigInteger> decodeBatch(List<BigInteger> c, Executor executor) {
+        return decodeBatch(c.toArray(new BigInteger[0]), executor);
+    }
+
+    /**
+     * Decode a batch of ciphers using CRT.
+     * Expects ciphers to be padded using OAEP.
+     * Results are in the order of the ciphers, a cipher that
+     * fails to decode does not affect the others.
+     *
+     * @param c - cipher texts
+     * @param executor - executor to decode on
+     * @return BatchResult<BigInteger>
+     */
+    public BatchResult<BigInteger> decodeBatch(BigInteger[] c, Executor executor) {
+        BatchResult<BigInteger> result = new BatchResult<>(c.length);
+
+        Batch.forEach(c.length, executor, i -> {
+            try {
+                result.set(i, decode(c[i], SCRATCH.get()));
+            } catch (Exception e) {
+                result.fail(i, e);
+            }
+        });
+
+        return result;
+    }
+
+    /**
+     * Decode the cipher using CRT, removing padding with scratch buffers.
+     *
+     * @param c - cipher text
+     * @param scratch - buffers of the current thread
+     * @return BigInteger
+     * @throws BadPaddingException
+     */
+    private BigInteger decode(BigInteger c, Scratch scratch) throws BadPaddingException {
+        byte[] em = scratch.em(keyLen);
+        byte[] m = scratch.m(keyLen);
+        BigInteger decoded = crt(c);
+
+        if (decoded.bitLength() > 8 * keyLen) {
+            throw new BadPaddingException("Decoding error");
+        }
+
+        OctetString.i2osp(decoded, em, 0, keyLen);
+        int mLen = oaep.decode(em, 0, keyLen, m, 0);
+
+        if (mLen <= 0) {
+            throw new BadPaddingException("Decoding error");
+        }
+
+        return new BigInteger(m, 0, mLen);
     }
 
     /**
@@ -107,10 +372,189 @@ public class PrivateKey {
     public BigInteger decodeCRT(BigInteger c) {
         BigInteger m1 = c.modPow(dp, p);
         BigInteger m2 = c.modPow(dq, q);
-        BigInteger h = m1.subtract(m2).multiply(qinv).mod(p);
-        BigInteger m = m2.add(q.multiply(h));
+        BigInteger[] mi = new BigInteger[otherPrimeInfos.length];
 
-        return m;
+        for (int i = 0; i < mi.length; i++) {
+            mi[i] = c.modPow(otherPrimeInfos[i].getExponent(), otherPrimeInfos[i].getPrime());
+        }
+
+        return recombine(m1, m2, mi);
+    }
+
+    /**
+     * Decode the cipher using CRT, computing the two halves concurrently.
+     * m1 = c^dp mod p, and the exponentiations for any other primes,
+     * run on the executor while m2 = c^dq mod q runs on the calling thread.
+     *
+     * @param c - cipher text
+     * @param executor - executor to run m1 on
+     * @return BigInteger
+     */
+    public BigInteger decodeCRTParallel(BigInteger c, Executor executor) {
+        return decodeCRTParallel(c, executor, null);
+    }
+
+    /**
+     * Decode the cipher using CRT, computing the two halves concurrently,
+     * with Montgomery exponentiation if mont is given.
+     *
+     * @param c - cipher text
+     * @param executor - executor to run m1 on
+     * @param mont - Montgomery instances of the primes, or null for BigInteger.modPow
+     * @return BigInteger
+     */
+    private BigInteger decodeCRTParallel(BigInteger c, Executor executor, Montgomery[] mont) {
+        CompletableFuture<BigInteger> m1 = CompletableFuture.supplyAsync(() -> half(c, 0, mont), executor);
+        List<CompletableFuture<BigInteger>> others = new ArrayList<>(otherPrimeInfos.length);
+
+        for (int i = 0; i < otherPrimeInfos.length; i++) {
+            final int prime = i + 2;
+            others.add(CompletableFuture.supplyAsync(() -> half(c, prime, mont), executor));
+        }
+
+        BigInteger m2 = half(c, 1, mont);
+        BigInteger[] mi = new BigInteger[otherPrimeInfos.length];
+
+        for (int i = 0; i < mi.length; i++) {
+            mi[i] = others.get(i).join();
+        }
+
+        return recombine(m1.join(), m2, mi);
+    }
+
+    /**
+     * Run the CRT halves of decode and sign concurrently on the executor,
+     * for keys with a modulus of at least minBits. Smaller keys stay
+     * on the calling thread, where the hand off would cost more than it saves.
+     * There is no default threshold, the crossover depends on the cores
+     * and load of the machine, measure it with decodeCRT and
+     * decodeCRTParallel of PrivateKeyBenchmark.
+     *
+     * @param executor - executor to run halves on, null to disable
+     * @param minBits - minimum modulus bit length
+     * @return PrivateKey
+     */
+    public PrivateKey setParallelCRT(Executor executor, int minBits) {
+        this.crtExecutor = modulus.bitLength() >= minBits ? executor : null;
+        return this;
+    }
+
+    /**
+     * Get the shared executor for parallel CRT, a daemon pool
+     * with a thread per processor, created on first use.
+     *
+     * @return Executor
+     */
+    public static Executor getParallelCRTExecutor() {
+        return CRTExecutor.INSTANCE;
+    }
+
+    /**
+     * Decode the cipher using CRT with blinding.
+     * c is multiplied by r^e before exponentiation and the result by r^-1,
+     * so the timing of the exponentiation does not depend on c.
+     * The key keeps a pool of up to 4 pairs (r^e, r^-1), each taken by one
+     * call at a time, squared after every use and replaced with a fresh random
+     * pair every BLINDING_REFRESH uses, so most calls cost two multiplications
+     * and two squarings mod n. The pool is held by the key, not by threads,
+     * so memory does not grow with the number of threads using the key.
+     *
+     * @param c - cipher text
+     * @return BigInteger
+     */
+    public BigInteger decodeCRTBlinded(BigInteger c) {
+        return blinded(c, null);
+    }
+
+    /**
+     * Blind the CRT exponentiation of decode and sign, on by default.
+     *
+     * @param enabled - true to enable
+     * @return PrivateKey
+     */
+    public PrivateKey setBlinding(boolean enabled) {
+        this.blinding = enabled;
+        return this;
+    }
+
+    /**
+     * Check the CRT result of decode and sign before returning it, off by default.
+     * The result is raised to the public exponent and compared with the input,
+     * with PublicKey.encodeRaw. A fault in one CRT half would otherwise leak
+     * a factor of the modulus through the result.
+     * On a mismatch the result is computed again, blinded, and checked,
+     * if that fails too an IllegalStateException is thrown.
+     *
+     * @param enabled - true to enable
+     * @return PrivateKey
+     */
+    public PrivateKey setFaultCheck(boolean enabled) {
+        if (enabled && faultCheckKey == null) {
+            faultCheckKey = new PublicKey(modulus, publicExponent, oaep);
+        }
+
+        this.faultCheck = enabled;
+        return this;
+    }
+
+    /**
+     * Get the number of CRT results checked.
+     *
+     * @return long
+     */
+    public long getFaultChecks() {
+        return faultChecks.sum();
+    }
+
+    /**
+     * Get the number of CRT results which failed the fault check.
+     *
+     * @return long
+     */
+    public long getFaultsDetected() {
+        return faultsDetected.sum();
+    }
+
+    /**
+     * Decode the cipher using CRT with Montgomery exponentiation.
+     * Montgomery constants for the primes are computed on first use
+     * and kept with the key.
+     *
+     * NOTE: Where the JVM has Montgomery intrinsics for BigInteger
+     * (HotSpot on x86_64), decodeCRT is faster, see MontgomeryBenchmark.
+     *
+     * @param c - cipher text
+     * @return BigInteger
+     */
+    public BigInteger decodeCRTMontgomery(BigInteger c) {
+        Montgomery[] mont = getMontgomery();
+        BigInteger m1 = half(c, 0, mont);
+        BigInteger m2 = half(c, 1, mont);
+        BigInteger[] mi = new BigInteger[otherPrimeInfos.length];
+
+        for (int i = 0; i < mi.length; i++) {
+            mi[i] = half(c, i + 2, mont);
+        }
+
+        return recombine(m1, m2, mi);
+    }
+
+    /**
+     * Use Montgomery exponentiation for the CRT halves of decode, decrypt,
+     * sign and batch decode, off by default. Applies with blinding,
+     * parallel CRT and the fault check. Only worth enabling on JVMs
+     * without BigInteger intrinsics, measure with MontgomeryBenchmark.
+     *
+     * @param enabled - true to enable
+     * @return PrivateKey
+     */
+    public PrivateKey setMontgomeryCRT(boolean enabled) {
+        if (enabled) {
+            getMontgomery();
+        }
+
+        this.montgomeryCRT = enabled;
+        return this;
     }
 
     /**
@@ -120,8 +564,11 @@ public class PrivateKey {
      * @return BigInteger
      */
     public BigInteger signRaw(BigInteger m) {
-        return decodeRaw(
+        Metrics.KeyMetrics metrics = this.metrics;
+        long start = metrics != null ? System.nanoTime() : 0;
+        BigInteger s = decodeRaw(
                 new BigInteger(
+                        1,
                         Digest.getDigest(
                                 m.toByteArray(),
                                 null,
@@ -129,6 +576,12 @@ public class PrivateKey {
                         )
                 )
         );
+
+        if (metrics != null) {
+            metrics.recordSince(Metrics.Operation.SIGN, start);
+        }
+
+        return s;
     }
 
     /**
@@ -138,8 +591,11 @@ public class PrivateKey {
      * @return BigInteger
      */
     public BigInteger signCRT(BigInteger m) {
-        return decodeCRT(
+        Metrics.KeyMetrics metrics = this.metrics;
+        long start = metrics != null ? System.nanoTime() : 0;
+        BigInteger s = crt(
                 new BigInteger(
+                        1,
                         Digest.getDigest(
                                 m.toByteArray(),
                                 null,
@@ -147,6 +603,379 @@ public class PrivateKey {
                         )
                 )
         );
+
+        if (metrics != null) {
+            metrics.recordSince(Metrics.Operation.SIGN, start);
+        }
+
+        return s;
+    }
+
+    /**
+     * Create a streaming RSASSA-PSS signer with SHA-512.
+     *
+     * @return Signer
+     */
+    public Signer newSigner() {
+        return new Signer(this, new PSS());
+    }
+
+    /**
+     * RSASP1, s = m to the power of d mod n, using CRT.
+     * Used by Signer, m must already be encoded.
+     *
+     * @param m - encoded message representative
+     * @return BigInteger
+     */
+    BigInteger signPrimitive(BigInteger m) {
+        return crt(m);
+    }
+
+    /**
+     * Record operation latencies of this key in metrics,
+     * under the key length of the modulus.
+     * DECODE_CRT is the CRT exponentiation shared by decode, decrypt
+     * and sign, including blinding and the fault check.
+     *
+     * @param metrics - metrics to record in, null to disable
+     * @return PrivateKey
+     */
+    public PrivateKey setMetrics(Metrics metrics) {
+        this.metrics = metrics != null ? metrics.forKeyLength(modulus.bitLength()) : null;
+        return this;
+    }
+
+    /**
+     * Get the metrics of this key, used by Signer.
+     *
+     * @return Metrics.KeyMetrics - metrics, or null if disabled
+     */
+    Metrics.KeyMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Get the public key for this private key.
+     *
+     * @return PublicKey
+     */
+    public PublicKey getPublicKey() {
+        return new PublicKey(modulus, publicExponent, oaep);
+    }
+
+    /**
+     * Get the first prime number.
+     *
+     * @return BigInteger
+     */
+    public BigInteger getP() {
+        return p;
+    }
+
+    /**
+     * Get the second prime number.
+     *
+     * @return BigInteger
+     */
+    public BigInteger getQ() {
+        return q;
+    }
+
+    /**
+     * Get d mod p-1.
+     *
+     * @return BigInteger
+     */
+    public BigInteger getDp() {
+        return dp;
+    }
+
+    /**
+     * Get d mod q-1.
+     *
+     * @return BigInteger
+     */
+    public BigInteger getDq() {
+        return dq;
+    }
+
+    /**
+     * Get the inverse of q mod p.
+     *
+     * @return BigInteger
+     */
+    public BigInteger getQinv() {
+        return qinv;
+    }
+
+    /**
+     * Get the third and later primes, empty for two prime keys.
+     *
+     * @return OtherPrimeInfo[]
+     */
+    public OtherPrimeInfo[] getOtherPrimeInfos() {
+        return otherPrimeInfos.clone();
+    }
+
+    /**
+     * Get the OAEP object.
+     *
+     * @return OAEP
+     */
+    public OAEP getOAEP() {
+        return oaep;
+    }
+
+    /**
+     * Decode using CRT, in parallel if enabled.
+     *
+     * @param c - cipher text
+     * @return BigInteger
+     */
+    private BigInteger crt(BigInteger c) {
+        Metrics.KeyMetrics metrics = this.metrics;
+        long start = metrics != null ? System.nanoTime() : 0;
+        Executor executor = crtExecutor;
+        BigInteger m;
+
+        if (blinding) {
+            m = blinded(c, executor);
+        } else {
+            m = exponentiate(c, executor);
+        }
+
+        if (faultCheck) {
+            m = checkFault(c, m);
+        }
+
+        if (metrics != null) {
+            metrics.recordSince(Metrics.Operation.DECODE_CRT, start);
+        }
+
+        return m;
+    }
+
+    /**
+     * Verify m^e = c mod n, recomputing blinded on a mismatch.
+     * The recompute is blinded whatever the blinding setting,
+     * an unblinded exponentiation would undo the side channel protection.
+     *
+     * @param c - input of the CRT exponentiation
+     * @param m - result of the CRT exponentiation
+     * @return BigInteger - checked result
+     */
+    private BigInteger checkFault(BigInteger c, BigInteger m) {
+        PublicKey key = faultCheckKey;
+        BigInteger expected = c.mod(modulus);
+        faultChecks.increment();
+
+        if (key.encodeRaw(m).equals(expected)) {
+            return m;
+        }
+
+        faultsDetected.increment();
+        m = blinded(c, null);
+
+        if (!key.encodeRaw(m).equals(expected)) {
+            throw new IllegalStateException("RSA fault detected");
+        }
+
+        return m;
+    }
+
+    /**
+     * Decode using CRT with a blinding pair taken from the pool,
+     * returned once used. A pair is never used by two calls at once.
+     *
+     * @param c - cipher text
+     * @param executor - executor for parallel CRT, or null
+     * @return BigInteger
+     */
+    private BigInteger blinded(BigInteger c, Executor executor) {
+        int start = (int) Thread.currentThread().getId();
+        Blinding pair = null;
+
+        for (int i = 0; i < BLINDING_POOL_SIZE && pair == null; i++) {
+            pair = blindingPairs.getAndSet(Math.floorMod(start + i, BLINDING_POOL_SIZE), null);
+        }
+
+        if (pair == null || pair.uses >= BLINDING_REFRESH) {
+            pair = new Blinding(modulus, publicExponent);
+        }
+
+        BigInteger x = c.multiply(pair.vi).mod(modulus);
+        BigInteger m = exponentiate(x, executor);
+        m = m.multiply(pair.vf).mod(modulus);
+        pair.next(modulus);
+
+        //Return the pair to a free slot, when the pool is full it is dropped
+        for (int i = 0; i < BLINDING_POOL_SIZE; i++) {
+            if (blindingPairs.compareAndSet(Math.floorMod(start + i, BLINDING_POOL_SIZE), null, pair)) {
+                break;
+            }
+        }
+
+        return m;
+    }
+
+    /**
+     * CRT exponentiation with the settings of the key,
+     * in parallel if an executor is given.
+     *
+     * @param c - cipher text
+     * @param executor - executor for parallel CRT, or null
+     * @return BigInteger
+     */
+    private BigInteger exponentiate(BigInteger c, Executor executor) {
+        Montgomery[] mont = montgomeryCRT ? getMontgomery() : null;
+
+        if (executor != null) {
+            return decodeCRTParallel(c, executor, mont);
+        }
+
+        return mont != null ? decodeCRTMontgomery(c) : decodeCRT(c);
+    }
+
+    /**
+     * One CRT exponentiation, c^d_i mod r_i.
+     *
+     * @param c - cipher text
+     * @param i - prime index, 0 for p, 1 for q, 2 and up for the other primes
+     * @param mont - Montgomery instances of the primes, or null for BigInteger.modPow
+     * @return BigInteger
+     */
+    private BigInteger half(BigInteger c, int i, Montgomery[] mont) {
+        BigInteger exponent = i == 0 ? dp : i == 1 ? dq : otherPrimeInfos[i - 2].getExponent();
+
+        if (mont != null) {
+            return mont[i].modPow(c, exponent);
+        }
+
+        return c.modPow(exponent, i == 0 ? p : i == 1 ? q : otherPrimeInfos[i - 2].getPrime());
+    }
+
+    /**
+     * Recombine the CRT halves, Garner's formula, RFC 8017 5.1.2.
+     * h = qinv * (m1 - m2) mod p, m = m2 + h * q
+     * Then for each other prime r_i, with R = r_1 * ... * r_i-1,
+     * h = (m_i - m) * t_i mod r_i, m = m + R * h
+     *
+     * @param m1 - c^dp mod p
+     * @param m2 - c^dq mod q
+     * @param mi - c^d_i mod r_i for each other prime
+     * @return BigInteger
+     */
+    private BigInteger recombine(BigInteger m1, BigInteger m2, BigInteger[] mi) {
+        BigInteger h = m1.subtract(m2).multiply(qinv).mod(p);
+        BigInteger m = m2.add(q.multiply(h));
+        BigInteger r = p;
+
+        for (int i = 0; i < mi.length; i++) {
+            OtherPrimeInfo info = otherPrimeInfos[i];
+            r = r.multiply(i == 0 ? q : otherPrimeInfos[i - 1].getPrime());
+            h = mi[i].subtract(m).multiply(info.getCoefficient()).mod(info.getPrime());
+            m = m.add(r.multiply(h));
+        }
+
+        return m;
+    }
+
+    /**
+     * Get the Montgomery constants for each prime, computing them once.
+     *
+     * @return Montgomery[]
+     */
+    private Montgomery[] getMontgomery() {
+        Montgomery[] mont = montgomery;
+
+        if (mont == null) {
+            synchronized (this) {
+                mont = montgomery;
+
+                if (mont == null) {
+                    mont = new Montgomery[2 + otherPrimeInfos.length];
+                    mont[0] = new Montgomery(p);
+                    mont[1] = new Montgomery(q);
+
+                    for (int i = 0; i < otherPrimeInfos.length; i++) {
+                        mont[i + 2] = new Montgomery(otherPrimeInfos[i].getPrime());
+                    }
+
+                    montgomery = mont;
+                }
+            }
+        }
+
+        return mont;
+    }
+
+    /**
+     * Shared executor for parallel CRT, created on first use.
+     */
+    private static final class CRTExecutor {
+        private static final Executor INSTANCE = Executors.newFixedThreadPool(
+                Runtime.getRuntime().availableProcessors(),
+                r -> {
+                    Thread thread = new Thread(r, "crt");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+        );
+    }
+
+    /**
+     * Blinding pair of one key, vi = r^e and vf = r^-1 mod n,
+     * used by one call at a time.
+     */
+    private static final class Blinding {
+        private BigInteger vi;
+        private BigInteger vf;
+        private int uses;
+
+        private Blinding(BigInteger n, BigInteger e) {
+            BigInteger r;
+
+            do {
+                r = new BigInteger(n.bitLength(), BLINDING_RANDOM);
+            } while (r.compareTo(BigInteger.ONE) <= 0 || r.compareTo(n) >= 0 || !r.gcd(n).equals(BigInteger.ONE));
+
+            this.vi = r.modPow(e, n);
+            this.vf = r.modInverse(n);
+        }
+
+        /**
+         * (r^2)^e = (r^e)^2 and (r^2)^-1 = (r^-1)^2, so squaring both
+         * gives the pair for r^2 without an inverse.
+         */
+        private void next(BigInteger n) {
+            vi = vi.multiply(vi).mod(n);
+            vf = vf.multiply(vf).mod(n);
+            uses++;
+        }
+    }
+
+    /**
+     * Per thread decode buffers.
+     */
+    private static final class Scratch {
+        private byte[] em = new byte[0];
+        private byte[] m = new byte[0];
+
+        private byte[] em(int length) {
+            if (em.length < length) {
+                em = new byte[length];
+            }
+
+            return em;
+        }
+
+        private byte[] m(int length) {
+            if (m.length < length) {
+                m = new byte[length];
+            }
+
+            return m;
+        }
     }
 
 }
@@ -1,6 +1,10 @@
 package com.captainredbeard.xor;
 
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.BitSet;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * RSA public key.
@@ -14,6 +18,7 @@ public class PublicKey {
     public BigInteger publicExponent;
     private int keyLen;
     private OAEP oaep;
+    private volatile Metrics.KeyMetrics metrics;
 
     /**
      * Construct a public key.
@@ -36,14 +41,136 @@ public class PublicKey {
      * @return BigInteger
      */
     public BigInteger encode(BigInteger m) {
-        return encodeRaw(
-                new BigInteger(
-                        oaep.addPadding(
-                                m.toByteArray(),
-                                keyLen
-                        )
-                )
-        );
+        Metrics.KeyMetrics metrics = this.metrics;
+        long start = metrics != null ? System.nanoTime() : 0;
+        byte[] em = oaep.addPadding(m.toByteArray(), keyLen);
+
+        if (metrics != null) {
+            metrics.recordSince(Metrics.Operation.PAD, start);
+        }
+
+        BigInteger c = encodeRaw(OctetString.os2ip(em));
+
+        if (metrics != null) {
+            metrics.recordSince(Metrics.Operation.ENCODE, start);
+        }
+
+        return c;
+    }
+
+    /**
+     * Encrypt the message with OAEP padding, RSAES-OAEP.
+     *
+     * @param m - message
+     * @return byte[] - cipher text of getModulusLength() bytes, or null on error
+     */
+    public byte[] encrypt(byte[] m) {
+        byte[] c = new byte[getModulusLength()];
+
+        if (encrypt(m, 0, m.length, c, 0) < 0) {
+            return null;
+        }
+
+        return c;
+    }
+
+    /**
+     * Encrypt the message with OAEP padding into the out buffer.
+     * The encoded message is built in out and converted with OS2IP,
+     * the cipher text is written back with I2OSP.
+     *
+     * @param m - message
+     * @param off - offset of message in m
+     * @param len - length of message
+     * @param out - buffer to write the cipher text to, getModulusLength() bytes from outOff
+     * @param outOff - offset in out
+     * @return int - bytes written, or -1 on error
+     */
+    public int encrypt(byte[] m, int off, int len, byte[] out, int outOff) {
+        int k = getModulusLength();
+
+        if (out.length - outOff < k) {
+            System.out.println("ERROR: output buffer too small");
+            return -1;
+        }
+
+        Metrics.KeyMetrics metrics = this.metrics;
+        long start = metrics != null ? System.nanoTime() : 0;
+
+        if (oaep.encode(m, off, len, out, outOff, keyLen) < 0) {
+            return -1;
+        }
+
+        if (metrics != null) {
+            metrics.recordSince(Metrics.Operation.PAD, start);
+        }
+
+        BigInteger c = encodeRaw(OctetString.os2ip(out, outOff, keyLen));
+        OctetString.i2osp(c, out, outOff, k);
+
+        if (metrics != null) {
+            metrics.recordSince(Metrics.Operation.ENCRYPT, start);
+        }
+
+        return k;
+    }
+
+    /**
+     * Encrypt the remaining bytes of m with OAEP padding into out.
+     * Both positions are advanced.
+     *
+     * @param m - message
+     * @param out - buffer to write the cipher text to
+     * @return int - bytes written, or -1 on error
+     */
+    public int encrypt(ByteBuffer m, ByteBuffer out) {
+        int k = getModulusLength();
+
+        if (out.remaining() < k) {
+            System.out.println("ERROR: output buffer too small");
+            return -1;
+        }
+
+        byte[] message;
+        int off;
+
+        if (m.hasArray()) {
+            message = m.array();
+            off = m.arrayOffset() + m.position();
+        } else {
+            message = new byte[m.remaining()];
+            m.get(m.position(), message);
+            off = 0;
+        }
+
+        int written;
+
+        if (out.hasArray()) {
+            written = encrypt(message, off, m.remaining(), out.array(), out.arrayOffset() + out.position());
+        } else {
+            byte[] c = new byte[k];
+            written = encrypt(message, off, m.remaining(), c, 0);
+
+            if (written > 0) {
+                out.put(out.position(), c);
+            }
+        }
+
+        if (written > 0) {
+            m.position(m.limit());
+            out.position(out.position() + written);
+        }
+
+        return written;
+    }
+
+    /**
+     * Get the length of the modulus, and of cipher texts, in bytes.
+     *
+     * @return int
+     */
+    public int getModulusLength() {
+        return (modulus.bitLength() + 7) / 8;
     }
 
     /**
@@ -68,15 +195,122 @@ public class PublicKey {
      * @return boolean
      */
     public boolean verify(BigInteger s, BigInteger m) {
-        s = encodeRaw(s);
-
-        return s.equals(
-                new BigInteger(
-                        Digest.getDigest(
-                                m.toByteArray(),
-                                null,
-                                oaep.hLen
-                        )
+        Metrics.KeyMetrics metrics = this.metrics;
+        long start = metrics != null ? System.nanoTime() : 0;
+        boolean valid = encodeRaw(s).equals(hash(m));
+
+        if (metrics != null) {
+            metrics.recordSince(Metrics.Operation.VERIFY, start);
+        }
+
+        return valid;
+    }
+
+    /**
+     * Create a streaming RSASSA-PSS verifier with SHA-512.
+     *
+     * @return Verifier
+     */
+    public Verifier newVerifier() {
+        return new Verifier(this, new PSS());
+    }
+
+    /**
+     * Verify a batch of signatures on the common ForkJoinPool.
+     *
+     * @param s - signatures
+     * @param m - decoded messages, in the order of the signatures
+     * @return BitSet - bit i is set if signature i is valid
+     */
+    public BitSet verifyBatch(BigInteger[] s, BigInteger[] m) {
+        return verifyBatch(s, m, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Verify a batch of signatures.
+     * Messages are hashed in one stage and signatures exponentiated
+     * in a second, chunks of the batch move through the stages
+     * independently so hashing and exponentiation overlap.
+     * A signature or message which fails, such as a null entry,
+     * leaves its bit clear without failing the batch.
+     *
+     * @param s - signatures
+     * @param m - decoded messages, in the order of the signatures
+     * @param executor - executor to verify on
+     * @return BitSet - bit i is set if signature i is valid
+     */
+    public BitSet verifyBatch(BigInteger[] s, BigInteger[] m, Executor executor) {
+        if (s.length != m.length) {
+            throw new IllegalArgumentException("Signature and message counts differ");
+        }
+
+        BigInteger[] hashes = new BigInteger[m.length];
+        boolean[] valid = new boolean[s.length];
+
+        Batch.forEach(
+                s.length,
+                executor,
+                i -> {
+                    try {
+                        hashes[i] = hash(m[i]);
+                    } catch (Exception e) {
+                        //Leave the hash null, the signature is not valid
+                    }
+                },
+                i -> {
+                    try {
+                        valid[i] = hashes[i] != null && encodeRaw(s[i]).equals(hashes[i]);
+                    } catch (Exception e) {
+                        //Leave the bit clear, other signatures still verify
+                    }
+                }
+        );
+
+        BitSet result = new BitSet(s.length);
+
+        for (int i = 0; i < valid.length; i++) {
+            if (valid[i]) {
+                result.set(i);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Record operation latencies of this key in metrics,
+     * under the key length of the modulus.
+     *
+     * @param metrics - metrics to record in, null to disable
+     * @return PublicKey
+     */
+    public PublicKey setMetrics(Metrics metrics) {
+        this.metrics = metrics != null ? metrics.forKeyLength(modulus.bitLength()) : null;
+        return this;
+    }
+
+    /**
+     * Get the metrics of this key, used by Verifier.
+     *
+     * @return Metrics.KeyMetrics - metrics, or null if disabled
+     */
+    Metrics.KeyMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Hash of the message a signature is compared with.
+     *
+     * @param m - message
+     * @return BigInteger
+     */
+    private BigInteger hash(BigInteger m) {
+        return new BigInteger(
+                1,
+                Digest.getDigest(
+                        m.toByteArray(),
+                        null,
+                        oaep.hLen
                 )
         );
     }
@@ -1,8 +1,17 @@
 package com.captainredbeard.xor;
 
+import javax.crypto.BadPaddingException;
 import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
 import java.security.InvalidKeyException;
 import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * RSA implementation.
@@ -16,6 +25,8 @@ public class RSA {
     private BigInteger e;
     private SecureRandom random;
     private OAEP oaep;
+    private PrimeSearch primeSearch;
+    private volatile Metrics metrics;
 
     public RSA() {
         this(null, null);
@@ -43,6 +54,7 @@ public class RSA {
         }
 
         this.oaep = new OAEP(this.random, null, 64);
+        this.primeSearch = new PrimeSearch(this.random);
     }
 
     /**
@@ -53,25 +65,162 @@ public class RSA {
      * @throws InvalidKeyException
      */
     public Keypair generateKeypair(int keyLength) throws InvalidKeyException {
-        if (keyLength < MIN_KEY_LENGTH) {
-            throw new InvalidKeyException();
+        return generateKeypair(keyLength, 2);
+    }
+
+    /**
+     * Generate a multi-prime keypair, RFC 8017.
+     * More primes make private key operations cheaper, the number
+     * of primes is limited by the key length, see getMaxPrimes.
+     *
+     * @param keyLength - desired key length
+     * @param primes - number of primes
+     * @return Keypair
+     * @throws InvalidKeyException
+     */
+    public Keypair generateKeypair(int keyLength, int primes) throws InvalidKeyException {
+        checkKeyLength(keyLength, primes);
+        long start = System.nanoTime();
+
+        //Get prime numbers
+        BigInteger[] r = new BigInteger[primes];
+
+        for (int i = 0; i < primes; i++) {
+            r[i] = primeSearch.probablePrime(getPrimeBitLength(keyLength, primes, i));
         }
 
-        //Get two prime numbers
-        BigInteger p = BigInteger.probablePrime((keyLength / 2) + 2 + random.nextInt(64), random);
-        BigInteger q = BigInteger.probablePrime((keyLength / 2), random);
+        return generateKeypair(r, start);
+    }
 
-        //Calculate modulus
-        BigInteger n = p.multiply(q);
+    /**
+     * Generate a keypair in the background.
+     * P and Q are searched for concurrently on the common ForkJoinPool.
+     *
+     * @param keyLength - desired key length
+     * @return CompletableFuture<Keypair>
+     */
+    public CompletableFuture<Keypair> generateKeypairAsync(int keyLength) {
+        return generateKeypairAsync(keyLength, ForkJoinPool.commonPool(), 1);
+    }
 
-        //Calculate PHI
-        BigInteger phi = p.subtract(BigInteger.ONE).multiply(q.subtract(BigInteger.ONE));
+    /**
+     * Generate a keypair in the background.
+     * P and Q are searched for concurrently, each by searchesPerPrime
+     * racing searches on the executor. The first search to find a prime
+     * wins and the others stop before their next candidate.
+     * Cancelling the returned future stops all searches.
+     *
+     * @param keyLength - desired key length
+     * @param executor - executor to run the searches on
+     * @param searchesPerPrime - number of concurrent searches for each prime
+     * @return CompletableFuture<Keypair>
+     */
+    public CompletableFuture<Keypair> generateKeypairAsync(int keyLength, Executor executor, int searchesPerPrime) {
+        return generateKeypairAsync(keyLength, 2, executor, searchesPerPrime);
+    }
 
-        //Calculate PHI of modulus
-        BigInteger phiOfN = phi.mod(n);
+    /**
+     * Generate a multi-prime keypair in the background.
+     * All primes are searched for concurrently, see generateKeypairAsync.
+     *
+     * @param keyLength - desired key length
+     * @param primes - number of primes
+     * @param executor - executor to run the searches on
+     * @param searchesPerPrime - number of concurrent searches for each prime
+     * @return CompletableFuture<Keypair>
+     */
+    public CompletableFuture<Keypair> generateKeypairAsync(
+            int keyLength,
+            int primes,
+            Executor executor,
+            int searchesPerPrime) {
+        try {
+            checkKeyLength(keyLength, primes);
+        } catch (InvalidKeyException e) {
+            return CompletableFuture.failedFuture(e);
+        }
 
-        //Calculate inverse of E mod PHI
-        BigInteger d = e.modInverse(phi);
+        long start = System.nanoTime();
+        List<CompletableFuture<BigInteger>> r = new ArrayList<>();
+
+        for (int i = 0; i < primes; i++) {
+            r.add(searchPrime(getPrimeBitLength(keyLength, primes, i), executor, searchesPerPrime));
+        }
+
+        CompletableFuture<Keypair> keypair = CompletableFuture
+                .allOf(r.toArray(new CompletableFuture<?>[0]))
+                .thenApply(v -> {
+                    try {
+                        return generateKeypair(r.stream().map(CompletableFuture::join).toArray(BigInteger[]::new), start);
+                    } catch (InvalidKeyException e) {
+                        throw new CompletionException(e);
+                    }
+                });
+
+        //Stop searching if the caller gives up
+        keypair.whenComplete((k, t) -> r.forEach(f -> f.cancel(false)));
+
+        return keypair;
+    }
+
+    /**
+     * Get the maximum number of primes for the key length.
+     *
+     * @param keyLength - key length
+     * @return int
+     */
+    public static int getMaxPrimes(int keyLength) {
+        if (keyLength < 4096) {
+            return 3;
+        } else if (keyLength < 8192) {
+            return 4;
+        }
+
+        return 5;
+    }
+
+    /**
+     * Record generation latencies, and operation latencies
+     * of generated keys, in metrics.
+     *
+     * @param metrics - metrics to record in, null to disable
+     * @return RSA
+     */
+    public RSA setMetrics(Metrics metrics) {
+        this.metrics = metrics;
+        return this;
+    }
+
+    /**
+     * Build a keypair from prime numbers.
+     *
+     * @param r - prime numbers, p, q and any others
+     * @param start - System.nanoTime() at the start of generation
+     * @return Keypair
+     * @throws InvalidKeyException
+     */
+    private Keypair generateKeypair(BigInteger[] r, long start) throws InvalidKeyException {
+        BigInteger p = r[0];
+        BigInteger q = r[1];
+
+        //Calculate modulus and PHI
+        BigInteger n = BigInteger.ONE;
+        BigInteger phi = BigInteger.ONE;
+
+        for (BigInteger prime : r) {
+            n = n.multiply(prime);
+            phi = phi.multiply(prime.subtract(BigInteger.ONE));
+        }
+
+        //Check primes are distinct
+        for (int i = 0; i < r.length; i++) {
+            for (int j = i + 1; j < r.length; j++) {
+                if (r[i].equals(r[j])) {
+                    System.out.println("Primes are not distinct.");
+                    throw new InvalidKeyException();
+                }
+            }
+        }
 
         //Check if phi gcd(e) > 1
         if (phi.gcd(e).intValue() > 1) {
@@ -79,6 +228,12 @@ public class RSA {
             throw new InvalidKeyException();
         }
 
+        //Calculate PHI of modulus
+        BigInteger phiOfN = phi.mod(n);
+
+        //Calculate inverse of E mod PHI
+        BigInteger d = e.modInverse(phi);
+
         //Check if 1 < e
         if (e.compareTo(BigInteger.ONE) != 1) {
             System.out.println("1 !< e");
@@ -107,8 +262,92 @@ public class RSA {
         BigInteger dq = d.mod(q.subtract(BigInteger.ONE));
         BigInteger qinv = q.modInverse(p);
 
+        //Other primes, d_i = d mod r_i-1, t_i = inverse of r_1 * ... * r_i-1 mod r_i
+        OtherPrimeInfo[] others = new OtherPrimeInfo[r.length - 2];
+        BigInteger product = p.multiply(q);
+
+        for (int i = 2; i < r.length; i++) {
+            others[i - 2] = new OtherPrimeInfo(
+                    r[i],
+                    d.mod(r[i].subtract(BigInteger.ONE)),
+                    product.modInverse(r[i])
+            );
+            product = product.multiply(r[i]);
+        }
+
+        Metrics metrics = this.metrics;
+
+        if (metrics != null) {
+            metrics.forKeyLength(n.bitLength()).recordSince(Metrics.Operation.KEYGEN, start);
+        }
+
         //Return keypair
-        return new Keypair(n, e, d, p, q, dp, dq, qinv, oaep);
+        return new Keypair(n, e, d, p, q, dp, dq, qinv, others, oaep).setMetrics(metrics);
+    }
+
+    /**
+     * Check the key length and number of primes.
+     *
+     * @param keyLength - desired key length
+     * @param primes - number of primes
+     * @throws InvalidKeyException
+     */
+    private void checkKeyLength(int keyLength, int primes) throws InvalidKeyException {
+        if (keyLength < MIN_KEY_LENGTH) {
+            throw new InvalidKeyException();
+        }
+
+        if (primes < 2 || primes > getMaxPrimes(keyLength)) {
+            throw new InvalidKeyException("Invalid number of primes: " + primes);
+        }
+    }
+
+    /**
+     * Bit length of the prime at the index.
+     * The first prime is slightly larger so the product of the primes
+     * is longer than the key length, the others are keyLength / primes.
+     *
+     * @param keyLength - desired key length
+     * @param primes - number of primes
+     * @param index - index of prime
+     * @return int
+     */
+    private int getPrimeBitLength(int keyLength, int primes, int index) {
+        int bits = keyLength / primes;
+
+        if (index == 0) {
+            return keyLength - (primes - 1) * bits + primes + random.nextInt(64);
+        }
+
+        return bits;
+    }
+
+    /**
+     * Search for a prime with racing searches on the executor.
+     *
+     * @param bitLength - bit length of the prime
+     * @param executor - executor to run the searches on
+     * @param searches - number of concurrent searches
+     * @return CompletableFuture<BigInteger>
+     */
+    private CompletableFuture<BigInteger> searchPrime(int bitLength, Executor executor, int searches) {
+        CompletableFuture<BigInteger> prime = new CompletableFuture<>();
+
+        for (int i = 0; i < Math.max(1, searches); i++) {
+            CompletableFuture.runAsync(() -> {
+                try {
+                    BigInteger candidate = primeSearch.probablePrime(bitLength, prime::isDone);
+
+                    if (candidate != null) {
+                        prime.complete(candidate);
+                    }
+                } catch (Throwable t) {
+                    prime.completeExceptionally(t);
+                }
+            }, executor);
+        }
+
+        return prime;
     }
 
     /**
@@ -116,21 +355,57 @@ public class RSA {
      *
      * @param message - message to encrypt
      * @param k - public key
-     * @return String
+     * @return byte[] - cipher text of k.getModulusLength() bytes, or null on error
      */
-    public String encrypt(String message, PublicKey k) {
-        return new String(k.encode(new BigInteger(message.getBytes())).toByteArray());
+    public byte[] encrypt(byte[] message, PublicKey k) {
+        return k.encrypt(message);
     }
 
     /**
      * Wrapper method to decrypt with private key.
      *
-     * @param cipher - cipher to decrypt
+     * @param cipher - cipher text to decrypt
+     * @param k - private key
+     * @return byte[]
+     * @throws BadPaddingException if the cipher text is invalid
+     */
+    public byte[] decrypt(byte[] cipher, PrivateKey k) throws BadPaddingException {
+        return k.decrypt(cipher);
+    }
+
+    /**
+     * Wrapper method to encrypt a string with public key.
+     * The message is UTF-8 and the cipher text is Base64,
+     * so both survive being handled as strings.
+     *
+     * @param message - message to encrypt
+     * @param k - public key
+     * @return String - Base64 cipher text, or null on error
+     */
+    public String encrypt(String message, PublicKey k) {
+        byte[] cipher = k.encrypt(message.getBytes(StandardCharsets.UTF_8));
+
+        if (cipher == null) {
+            return null;
+        }
+
+        return Base64.getEncoder().encodeToString(cipher);
+    }
+
+    /**
+     * Wrapper method to decrypt a string with private key.
+     *
+     * @param cipher - Base64 cipher text to decrypt
      * @param k - private key
-     * @return String
+     * @return String - message, or null on error
      */
     public String decrypt(String cipher, PrivateKey k) {
-        return new String(k.decode(new BigInteger(cipher.getBytes())).toByteArray());
+        try {
+            return new String(k.decrypt(Base64.getDecoder().decode(cipher)), StandardCharsets.UTF_8);
+        } catch (BadPaddingException | IllegalArgumentException e) {
+            System.out.println("ERROR: " + e.getMessage());
+            return null;
+        }
     }
 
     /**
@@ -155,4 +430,13 @@ public class RSA {
         return oaep.removePadding(data, keyLen);
     }
 
+    /**
+     * Get the OAEP object shared by generated keys.
+     *
+     * @return OAEP
+     */
+    public OAEP getOAEP() {
+        return oaep;
+    }
+
 }
@@ -0,0 +1,395 @@
+package com.captainredbeard.xor;
+
+import java.security.SignatureException;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-process RSA service.
+ * Decrypt, sign and verify requests from any number of caller threads
+ * are queued per key and drained in micro-batches of up to maxBatch
+ * requests on a fixed pool of worker threads. A batch runs on one thread,
+ * so the thread local scratch buffers and digest engines stay hot, the
+ * key's blinding pair is reused and a signer or verifier is reused for
+ * the whole batch.
+ *
+ * At most queueCapacity requests are queued or running, callers wait up
+ * to the submit timeout for space, after which the returned future fails
+ * with RejectedExecutionException. Futures complete on the worker threads,
+ * requests chained from them, such as a verify composed onto a sign,
+ * never wait, they go over capacity when the queue is full.
+ *
+ * @author captain-redbeard
+ * @version 1.00
+ * @since 17/10/26
+ */
+public class RSAService implements AutoCloseable {
+    public static final int DEFAULT_QUEUE_CAPACITY = 1024;
+    public static final int DEFAULT_MAX_BATCH = 16;
+    private final int maxBatch;
+    private final long submitTimeout;
+    private final Semaphore permits;
+    private final int queueCapacity;
+    private final ThreadPoolExecutor executor;
+    private final Map<Object, KeyQueue> queues = new ConcurrentHashMap<>();
+    private final Set<Thread> workers = ConcurrentHashMap.newKeySet();
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private volatile boolean closed;
+
+    /**
+     * Construct a service with a worker per processor,
+     * default capacity and batch size, and a 1 second submit timeout.
+     */
+    public RSAService() {
+        this(Runtime.getRuntime().availableProcessors(), DEFAULT_QUEUE_CAPACITY, DEFAULT_MAX_BATCH, 1, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Construct a service.
+     *
+     * @param threads - number of worker threads
+     * @param queueCapacity - maximum number of queued or running requests
+     * @param maxBatch - maximum number of requests for one key run in one batch
+     * @param submitTimeout - time a caller waits for queue space, 0 to reject immediately
+     * @param unit - unit of submitTimeout
+     */
+    public RSAService(int threads, int queueCapacity, int maxBatch, long submitTimeout, TimeUnit unit) {
+        if (threads < 1 || queueCapacity < 1 || maxBatch < 1 || submitTimeout < 0) {
+            throw new IllegalArgumentException("Invalid service configuration");
+        }
+
+        this.queueCapacity = queueCapacity;
+        this.maxBatch = maxBatch;
+        this.submitTimeout = unit.toNanos(submitTimeout);
+        this.permits = new Semaphore(queueCapacity);
+
+        //Batches waiting for a worker are bounded by the queued requests
+        AtomicInteger count = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(
+                threads,
+                threads,
+                0,
+                TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(),
+                r -> {
+                    Thread thread = new Thread(r, "rsa-service-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    workers.add(thread);
+                    return thread;
+                }
+        );
+    }
+
+    /**
+     * Decrypt the cipher text, RSAES-OAEP.
+     * The future fails with BadPaddingException if the cipher text is invalid.
+     *
+     * @param key - private key
+     * @param c - cipher text of key.getModulusLength() bytes
+     * @return CompletableFuture<byte[]> - message
+     */
+    public CompletableFuture<byte[]> decrypt(PrivateKey key, byte[] c) {
+        return submit(key, new Request<byte[]>() {
+            @Override
+            byte[] run(Context context) throws Exception {
+                return key.decrypt(c);
+            }
+        });
+    }
+
+    /**
+     * Sign the message, RSASSA-PSS with SHA-512.
+     *
+     * @param key - private key
+     * @param m - message
+     * @return CompletableFuture<byte[]> - signature of key.getModulusLength() bytes
+     */
+    public CompletableFuture<byte[]> sign(PrivateKey key, byte[] m) {
+        return submit(key, new Request<byte[]>() {
+            @Override
+            byte[] run(Context context) throws Exception {
+                if (context.signer == null) {
+                    context.signer = key.newSigner();
+                }
+
+                byte[] signature = context.signer.update(m).sign();
+
+                if (signature == null) {
+                    throw new SignatureException("Signing error");
+                }
+
+                return signature;
+            }
+        });
+    }
+
+    /**
+     * Verify the signature of the message, RSASSA-PSS with SHA-512.
+     *
+     * @param key - public key
+     * @param m - message
+     * @param signature - signature of key.getModulusLength() bytes
+     * @return CompletableFuture<Boolean>
+     */
+    public CompletableFuture<Boolean> verify(PublicKey key, byte[] m, byte[] signature) {
+        return submit(key, new Request<Boolean>() {
+            @Override
+            Boolean run(Context context) {
+                if (context.verifier == null) {
+                    context.verifier = key.newVerifier();
+                }
+
+                return context.verifier.update(m).verify(signature);
+            }
+        });
+    }
+
+    /**
+     * Get the number of accepted requests.
+     *
+     * @return long
+     */
+    public long getSubmitted() {
+        return submitted.sum();
+    }
+
+    /**
+     * Get the number of requests rejected because the queue was full or the service closed.
+     *
+     * @return long
+     */
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    /**
+     * Get the number of completed requests, successful or not.
+     *
+     * @return long
+     */
+    public long getCompleted() {
+        return completed.sum();
+    }
+
+    /**
+     * Get the number of batches run.
+     *
+     * @return long
+     */
+    public long getBatches() {
+        return batches.sum();
+    }
+
+    /**
+     * Get the average number of requests per batch.
+     *
+     * @return double
+     */
+    public double getAverageBatchSize() {
+        long count = batches.sum();
+        return count > 0 ? (double) completed.sum() / count : 0;
+    }
+
+    /**
+     * Get the number of queued or running requests.
+     *
+     * @return int
+     */
+    public int getQueued() {
+        return queueCapacity - permits.availablePermits();
+    }
+
+    /**
+     * Stop accepting requests. Queued requests still run.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        executor.shutdown();
+    }
+
+    /**
+     * Queue a request for the key, scheduling a batch if none is.
+     *
+     * @param key - key the request is for
+     * @param request - request
+     * @param <T> - result type
+     * @return CompletableFuture<T>
+     */
+    private <T> CompletableFuture<T> submit(Object key, Request<T> request) {
+        if (closed) {
+            rejected.increment();
+            return CompletableFuture.failedFuture(new RejectedExecutionException("RSA service closed"));
+        }
+
+        //Workers only release permits, waiting on one could deadlock
+        if (workers.contains(Thread.currentThread())) {
+            request.permit = permits.tryAcquire();
+        } else if (!acquire()) {
+            rejected.increment();
+            return CompletableFuture.failedFuture(new RejectedExecutionException("RSA service queue full"));
+        }
+
+        submitted.increment();
+
+        //A drained queue may be removed while in use, its batch still runs
+        KeyQueue queue = queues.computeIfAbsent(key, KeyQueue::new);
+        queue.requests.add(request);
+        schedule(queue);
+
+        return request.future;
+    }
+
+    /**
+     * Wait for queue space.
+     *
+     * @return boolean - true if a permit was acquired
+     */
+    private boolean acquire() {
+        try {
+            return permits.tryAcquire(submitTimeout, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Release the queue space of a request.
+     *
+     * @param request - finished request
+     */
+    private void release(Request<?> request) {
+        if (request.permit) {
+            permits.release();
+        }
+    }
+
+    /**
+     * Schedule a batch for the queue unless one is scheduled or running.
+     *
+     * @param queue - key queue
+     */
+    private void schedule(KeyQueue queue) {
+        if (!queue.scheduled.compareAndSet(false, true)) {
+            return;
+        }
+
+        try {
+            executor.execute(() -> drain(queue));
+        } catch (RejectedExecutionException e) {
+            //Closed after the requests were queued, they still run, on this thread
+            drain(queue);
+        }
+    }
+
+    /**
+     * Run up to maxBatch requests from the queue,
+     * then schedule another batch if more arrived.
+     *
+     * @param queue - key queue
+     */
+    private void drain(KeyQueue queue) {
+        Context context = new Context();
+        int ran = 0;
+        Request<?> request;
+
+        try {
+            //Once closed no more batches can be scheduled, run all that are queued
+            while ((ran < maxBatch || closed) && (request = queue.requests.poll()) != null) {
+                try {
+                    request.complete(context);
+                } finally {
+                    release(request);
+                    completed.increment();
+                    ran++;
+                }
+            }
+        } finally {
+            //Always unscheduled, or the key's queue would never run again
+            batches.increment();
+            queue.scheduled.set(false);
+
+            if (!queue.requests.isEmpty()) {
+                schedule(queue);
+            } else {
+                queues.remove(queue.key, queue);
+
+                //A request added after the check above, before the removal
+                if (!queue.requests.isEmpty()) {
+                    schedule(queue);
+                }
+            }
+        }
+    }
+
+    /**
+     * Requests for one key.
+     */
+    private static final class KeyQueue {
+        private final Object key;
+        private final Queue<Request<?>> requests = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        private KeyQueue(Object key) {
+            this.key = key;
+        }
+    }
+
+    /**
+     * State shared by the requests of one batch.
+     */
+    private static final class Context {
+        private Signer signer;
+        private Verifier verifier;
+    }
+
+    /**
+     * A queued request and its future.
+     *
+     * @param <T> - result type
+     */
+    private abstract static class Request<T> {
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+        private boolean permit = true;
+
+        /**
+         * Run the request.
+         *
+         * @param context - batch state
+         * @return T
+         * @throws Exception on failure
+         */
+        abstract T run(Context context) throws Exception;
+
+        /**
+         * Run the request and complete the future,
+         * failing it with anything thrown, errors included.
+         *
+         * @param context - batch state
+         */
+        private void complete(Context context) {
+            try {
+                future.complete(run(context));
+            } catch (Throwable t) {
+                future.completeExceptionally(t);
+            }
+        }
+    }
+
+}
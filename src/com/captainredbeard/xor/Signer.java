@@ -0,0 +1,109 @@
+package com.captainredbeard.xor;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+
+/**
+ * Streaming RSASSA-PSS signer, RFC 8017 8.1.1.
+ * The message is added with update in any number of parts,
+ * only its running hash is kept. sign resets the signer
+ * so it can be reused for the next message.
+ * An instance is not thread safe.
+ *
+ * @author captain-redbeard
+ * @version 1.00
+ * @since 17/10/26
+ */
+public class Signer {
+    private final PrivateKey key;
+    private final PSS pss;
+    private final Digest digest;
+    private final byte[] mHash;
+    private final byte[] em;
+    private final int emBits;
+
+    /**
+     * Construct a signer.
+     *
+     * @param key - private key
+     * @param pss - PSS encoding
+     */
+    public Signer(PrivateKey key, PSS pss) {
+        this.key = key;
+        this.pss = pss;
+        this.digest = pss.newDigest();
+        this.mHash = new byte[pss.getHashLength()];
+        this.emBits = key.modulus.bitLength() - 1;
+        this.em = new byte[pss.getEncodedLength(emBits)];
+    }
+
+    /**
+     * Add message data.
+     *
+     * @param m - data to add
+     * @return Signer
+     */
+    public Signer update(byte[] m) {
+        digest.update(m);
+        return this;
+    }
+
+    /**
+     * Add part of an array of message data.
+     *
+     * @param m - data to add
+     * @param off - offset of data in m
+     * @param len - length of data
+     * @return Signer
+     */
+    public Signer update(byte[] m, int off, int len) {
+        digest.update(m, off, len);
+        return this;
+    }
+
+    /**
+     * Add the remaining bytes of the buffer as message data.
+     *
+     * @param m - data to add, its position is advanced to the limit
+     * @return Signer
+     */
+    public Signer update(ByteBuffer m) {
+        digest.update(m);
+        return this;
+    }
+
+    /**
+     * Sign the message added so far and reset.
+     *
+     * @return byte[] - signature of getModulusLength() bytes, or null on error
+     */
+    public byte[] sign() {
+        Metrics.KeyMetrics metrics = key.getMetrics();
+        long start = metrics != null ? System.nanoTime() : 0;
+        digest.digest(mHash, 0, mHash.length);
+
+        if (pss.encode(mHash, emBits, em, 0) < 0) {
+            return null;
+        }
+
+        BigInteger s = key.signPrimitive(OctetString.os2ip(em));
+        byte[] signature = OctetString.i2osp(s, key.getModulusLength());
+
+        if (metrics != null) {
+            metrics.recordSince(Metrics.Operation.SIGN, start);
+        }
+
+        return signature;
+    }
+
+    /**
+     * Discard the message added so far.
+     *
+     * @return Signer
+     */
+    public Signer reset() {
+        digest.reset();
+        return this;
+    }
+
+}
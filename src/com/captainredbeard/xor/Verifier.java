@@ -0,0 +1,134 @@
+package com.captainredbeard.xor;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+
+/**
+ * Streaming RSASSA-PSS verifier, RFC 8017 8.1.2.
+ * The message is added with update in any number of parts,
+ * only its running hash is kept. verify resets the verifier
+ * so it can be reused for the next message.
+ * An instance is not thread safe.
+ *
+ * @author captain-redbeard
+ * @version 1.00
+ * @since 17/10/26
+ */
+public class Verifier {
+    private final PublicKey key;
+    private final PSS pss;
+    private final Digest digest;
+    private final byte[] mHash;
+    private final byte[] em;
+    private final int emBits;
+
+    /**
+     * Construct a verifier.
+     *
+     * @param key - public key
+     * @param pss - PSS encoding
+     */
+    public Verifier(PublicKey key, PSS pss) {
+        this.key = key;
+        this.pss = pss;
+        this.digest = pss.newDigest();
+        this.mHash = new byte[pss.getHashLength()];
+        this.emBits = key.modulus.bitLength() - 1;
+        this.em = new byte[pss.getEncodedLength(emBits)];
+    }
+
+    /**
+     * Add message data.
+     *
+     * @param m - data to add
+     * @return Verifier
+     */
+    public Verifier update(byte[] m) {
+        digest.update(m);
+        return this;
+    }
+
+    /**
+     * Add part of an array of message data.
+     *
+     * @param m - data to add
+     * @param off - offset of data in m
+     * @param len - length of data
+     * @return Verifier
+     */
+    public Verifier update(byte[] m, int off, int len) {
+        digest.update(m, off, len);
+        return this;
+    }
+
+    /**
+     * Add the remaining bytes of the buffer as message data.
+     *
+     * @param m - data to add, its position is advanced to the limit
+     * @return Verifier
+     */
+    public Verifier update(ByteBuffer m) {
+        digest.update(m);
+        return this;
+    }
+
+    /**
+     * Verify the signature of the message added so far and reset.
+     *
+     * @param signature - signature of getModulusLength() bytes
+     * @return boolean
+     */
+    public boolean verify(byte[] signature) {
+        Metrics.KeyMetrics metrics = key.getMetrics();
+        long start = metrics != null ? System.nanoTime() : 0;
+        boolean valid = verifySignature(signature);
+
+        if (metrics != null) {
+            metrics.recordSince(Metrics.Operation.VERIFY, start);
+        }
+
+        return valid;
+    }
+
+    /**
+     * Verify the signature of the message added so far, RSASSA-PSS-VERIFY.
+     *
+     * @param signature - signature of getModulusLength() bytes
+     * @return boolean
+     */
+    private boolean verifySignature(byte[] signature) {
+        digest.digest(mHash, 0, mHash.length);
+
+        if (signature.length != key.getModulusLength()) {
+            return false;
+        }
+
+        BigInteger s = OctetString.os2ip(signature);
+
+        if (s.compareTo(key.modulus) >= 0) {
+            return false;
+        }
+
+        //RSAVP1, the encoded message must fit in emBits
+        BigInteger m = key.encodeRaw(s);
+
+        if (m.bitLength() > emBits) {
+            return false;
+        }
+
+        OctetString.i2osp(m, em, 0, em.length);
+
+        return pss.verify(mHash, em, 0, emBits);
+    }
+
+    /**
+     * Discard the message added so far.
+     *
+     * @return Verifier
+     */
+    public Verifier reset() {
+        digest.reset();
+        return this;
+    }
+
+}
@@ -0,0 +1,140 @@
+package tests;
+
+import com.captainredbeard.xor.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * @author captain-redbeard
+ * @version 1.00
+ * @since 17/10/26
+ */
+public class TestEnvelope {
+    private static int success;
+    private static int failed;
+
+    public static void main(String[] args) throws Exception {
+        final int chunkSize = 1024;
+        final int[] lengths = {0, 1, chunkSize - 1, chunkSize, chunkSize + 1, 3 * chunkSize + 5};
+        final boolean debug = true;
+
+        RSA rsa = new RSA();
+        Keypair keypair = rsa.generateKeypair(rsa.MIN_KEY_LENGTH);
+        Envelope envelope = new Envelope(null, chunkSize);
+
+        for (int length : lengths) {
+            testStream(envelope, keypair, length, debug);
+            testChannel(envelope, keypair, length, debug);
+        }
+
+        testTamper(envelope, keypair, debug);
+
+        System.out.println();
+        System.out.println("-- Test Results --");
+        System.out.println("Tests ran: \t\t" + (lengths.length * 2 + 1));
+        System.out.println("Failed: \t\t" + failed);
+        System.out.println("Success: \t\t" + success);
+        System.out.println("Overall pass: \t" + (success == (lengths.length * 2 + 1)));
+    }
+
+    public static void testStream(Envelope envelope, Keypair keypair, int length, boolean debug) throws Exception {
+        byte[] message = message(length);
+        byte[] sealed = seal(envelope, keypair, message);
+
+        ByteArrayOutputStream opened = new ByteArrayOutputStream();
+        envelope.decrypt(keypair.getPrivateKey(), new ByteArrayInputStream(sealed), opened);
+
+        result("Stream " + length + " bytes, envelope " + sealed.length, Arrays.equals(message, opened.toByteArray()), debug);
+    }
+
+    //Sealed as a stream, opened through FileChannels, then sealed through FileChannels and opened as a stream
+    public static void testChannel(Envelope envelope, Keypair keypair, int length, boolean debug) throws Exception {
+        byte[] message = message(length);
+        Path plain = Files.createTempFile("envelope", ".txt");
+        Path sealed = Files.createTempFile("envelope", ".xe");
+        boolean pass;
+
+        try {
+            Files.write(sealed, seal(envelope, keypair, message));
+
+            try (FileChannel in = FileChannel.open(sealed, StandardOpenOption.READ);
+                 FileChannel out = FileChannel.open(plain, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                pass = envelope.decrypt(keypair.getPrivateKey(), in, out) == length;
+            }
+
+            pass = pass && Arrays.equals(message, Files.readAllBytes(plain));
+
+            try (FileChannel in = FileChannel.open(plain, StandardOpenOption.READ);
+                 FileChannel out = FileChannel.open(sealed, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                pass = pass && envelope.encrypt(keypair.getPublicKey(), in, out) == length;
+            }
+
+            ByteArrayOutputStream opened = new ByteArrayOutputStream();
+            envelope.decrypt(keypair.getPrivateKey(), Files.newInputStream(sealed), opened);
+            pass = pass && Arrays.equals(message, opened.toByteArray());
+        } finally {
+            Files.deleteIfExists(plain);
+            Files.deleteIfExists(sealed);
+        }
+
+        result("Channel " + length + " bytes", pass, debug);
+    }
+
+    //Modified, truncated and extended envelopes are rejected
+    public static void testTamper(Envelope envelope, Keypair keypair, boolean debug) throws Exception {
+        byte[] sealed = seal(envelope, keypair, message(3 * envelope.getChunkSize()));
+        byte[] modified = sealed.clone();
+        modified[modified.length - 100] ^= 1;
+
+        boolean pass = rejected(envelope, keypair, modified)
+                && rejected(envelope, keypair, Arrays.copyOf(sealed, sealed.length - 16))
+                && rejected(envelope, keypair, Arrays.copyOf(sealed, sealed.length - envelope.getChunkSize() - 16))
+                && rejected(envelope, keypair, Arrays.copyOf(sealed, sealed.length + 1));
+
+        result("Tamper", pass, debug);
+    }
+
+    private static boolean rejected(Envelope envelope, Keypair keypair, byte[] sealed) {
+        try {
+            envelope.decrypt(keypair.getPrivateKey(), new ByteArrayInputStream(sealed), new ByteArrayOutputStream());
+            return false;
+        } catch (Exception e) {
+            return true;
+        }
+    }
+
+    private static byte[] seal(Envelope envelope, Keypair keypair, byte[] message) throws IOException {
+        ByteArrayOutputStream sealed = new ByteArrayOutputStream();
+        envelope.encrypt(keypair.getPublicKey(), new ByteArrayInputStream(message), sealed);
+
+        return sealed.toByteArray();
+    }
+
+    private static byte[] message(int length) {
+        byte[] message = new byte[length];
+        new Random(length).nextBytes(message);
+
+        return message;
+    }
+
+    private static void result(String name, boolean pass, boolean debug) {
+        if (debug) {
+            System.out.println(name + ": " + pass);
+        }
+
+        if (pass) {
+            success++;
+        } else {
+            failed++;
+        }
+    }
+
+}
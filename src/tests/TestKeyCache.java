@@ -0,0 +1,337 @@
+package tests;
+
+import com.captainredbeard.xor.*;
+
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.InvalidKeyException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author captain-redbeard
+ * @version 1.00
+ * @since 17/10/26
+ */
+public class TestKeyCache {
+    private static int success;
+    private static int failed;
+
+    public static void main(String[] args) throws Exception {
+        final int keys = 20;
+        final boolean debug = true;
+
+        RSA rsa = new RSA();
+        Keypair[] keypairs = {
+                rsa.generateKeypair(rsa.MIN_KEY_LENGTH),
+                rsa.generateKeypair(rsa.MIN_KEY_LENGTH, 3)
+        };
+        Map<String, Keypair> entries = new LinkedHashMap<>();
+
+        for (int i = 0; i < keys; i++) {
+            entries.put("tenant-" + i, keypairs[i % keypairs.length]);
+        }
+
+        Path path = Files.createTempFile("keycache", ".xks");
+
+        try {
+            KeyStoreFile.write(path, entries);
+
+            try (KeyStoreFile keyStore = KeyStoreFile.open(path, rsa.getOAEP())) {
+                testKeyStore(keyStore, keys, debug);
+                testEviction(keyStore, debug);
+            }
+        } finally {
+            Files.deleteIfExists(path);
+        }
+
+        testConcurrentLoad(keypairs[0], debug);
+        testInvalidateWhileLoading(keypairs, debug);
+        testInvalid(debug);
+        testLoadError(keypairs[0], debug);
+
+        System.out.println();
+        System.out.println("-- Test Results --");
+        System.out.println("Tests ran: \t\t6");
+        System.out.println("Failed: \t\t" + failed);
+        System.out.println("Success: \t\t" + success);
+        System.out.println("Overall pass: \t" + (success == 6));
+    }
+
+    //Every key round trips, the second pass is served from the cache
+    public static void testKeyStore(KeyStoreFile keyStore, int keys, boolean debug) throws Exception {
+        KeyCache cache = new KeyCache(keyStore, keys);
+        BigInteger message = new BigInteger("Hello World!".getBytes());
+        boolean pass = true;
+
+        for (int round = 0; round < 2; round++) {
+            for (int i = 0; i < keys && pass; i++) {
+                String id = "tenant-" + i;
+                PrivateKey privateKey = cache.getPrivateKey(id);
+                pass = privateKey == cache.getPrivateKey(id)
+                        && message.equals(privateKey.decode(cache.getPublicKey(id).encode(message)));
+            }
+        }
+
+        //3 gets per key per pass, only the first is a miss
+        pass = pass && cache.getMisses() == keys
+                && cache.getHits() == 5L * keys
+                && cache.getLoads() == keys
+                && cache.size() == keys
+                && cache.getEvictions() == 0
+                && cache.getPrivateKey("unknown") == null
+                && cache.size() == keys;
+
+        if (debug) {
+            System.out.println("Hit rate: " + cache.getHitRate() + ", loads: " + cache.getLoads());
+        }
+
+        result(pass);
+    }
+
+    //The least recently used key is evicted
+    public static void testEviction(KeyStoreFile keyStore, boolean debug) throws Exception {
+        KeyCache cache = new KeyCache(keyStore, 2, 1);
+        PrivateKey a = cache.getPrivateKey("tenant-0");
+        cache.getPrivateKey("tenant-1");
+        cache.getPrivateKey("tenant-0");
+        cache.getPrivateKey("tenant-2");
+
+        boolean pass = cache.size() == 2
+                && cache.getEvictions() == 1
+                && cache.getPrivateKey("tenant-0") == a
+                && cache.getLoads() == 3;
+
+        //tenant-1 was evicted and is loaded again
+        cache.getPrivateKey("tenant-1");
+        pass = pass && cache.getLoads() == 4 && cache.getEvictions() == 2;
+
+        //Invalidated keys are loaded again
+        cache.invalidate("tenant-1");
+        pass = pass && cache.getPrivateKey("tenant-1") != null && cache.getLoads() == 5;
+
+        cache.invalidateAll();
+        pass = pass && cache.size() == 0;
+
+        if (debug) {
+            System.out.println("Evictions: " + cache.getEvictions() + ", pass: " + pass);
+        }
+
+        result(pass);
+    }
+
+    //Concurrent misses for one id share a load, the setup runs once
+    public static void testConcurrentLoad(Keypair keypair, boolean debug) throws Exception {
+        final int threads = 8;
+        AtomicInteger sourceLoads = new AtomicInteger();
+        AtomicInteger setups = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+
+        KeyCache cache = new KeyCache(id -> {
+            sourceLoads.incrementAndGet();
+
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            return keypair.getPrivateKey();
+        }, 10).setSetup(privateKey -> {
+            privateKey.setFaultCheck(true);
+            setups.incrementAndGet();
+        });
+
+        List<Thread> started = new ArrayList<>();
+        PrivateKey[] loaded = new PrivateKey[threads];
+
+        for (int i = 0; i < threads; i++) {
+            final int index = i;
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                    loaded[index] = cache.getPrivateKey("tenant");
+                } catch (Exception e) {
+                    e.printStackTrace();
+                }
+            });
+            thread.start();
+            started.add(thread);
+        }
+
+        start.countDown();
+
+        for (Thread thread : started) {
+            thread.join();
+        }
+
+        boolean pass = sourceLoads.get() == 1 && setups.get() == 1;
+
+        for (PrivateKey privateKey : loaded) {
+            pass = pass && privateKey == loaded[0] && privateKey != null;
+        }
+
+        BigInteger message = BigInteger.valueOf(42);
+        pass = pass && cache.getPublicKey("tenant").verify(loaded[0].sign(message), message)
+                && loaded[0].getFaultChecks() == 1;
+
+        if (debug) {
+            System.out.println("Source loads: " + sourceLoads.get() + ", pass: " + pass);
+        }
+
+        result(pass);
+    }
+
+    //A key rotated while the old one is loading is not replaced by the old one
+    public static void testInvalidateWhileLoading(Keypair[] keypairs, boolean debug) throws Exception {
+        AtomicInteger version = new AtomicInteger();
+        CountDownLatch loadStarted = new CountDownLatch(1);
+        CountDownLatch rotated = new CountDownLatch(1);
+
+        KeyCache cache = new KeyCache(id -> {
+            PrivateKey privateKey = keypairs[version.get()].getPrivateKey();
+            loadStarted.countDown();
+
+            try {
+                rotated.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            return privateKey;
+        }, 10);
+
+        PrivateKey[] old = new PrivateKey[1];
+        Thread loader = new Thread(() -> {
+            try {
+                old[0] = cache.getPrivateKey("tenant");
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        });
+        loader.start();
+
+        //Rotate and invalidate while the old key is loading
+        loadStarted.await();
+        version.set(1);
+        cache.invalidate("tenant");
+        rotated.countDown();
+        loader.join();
+
+        PrivateKey current = cache.getPrivateKey("tenant");
+        boolean pass = old[0] != null
+                && old[0].modulus.equals(keypairs[0].getPrivateKey().modulus)
+                && current.modulus.equals(keypairs[1].getPrivateKey().modulus)
+                && cache.getPrivateKey("tenant") == current
+                && cache.getLoads() == 2;
+
+        if (debug) {
+            System.out.println("Invalidated while loading, loads: " + cache.getLoads() + ", pass: " + pass);
+        }
+
+        result(pass);
+    }
+
+    //Load failures are thrown and not cached
+    public static void testInvalid(boolean debug) {
+        AtomicInteger sourceLoads = new AtomicInteger();
+        KeyCache cache = new KeyCache(id -> {
+            sourceLoads.incrementAndGet();
+            throw new InvalidKeyException("Malformed key: " + id);
+        }, 10);
+        boolean pass = true;
+
+        for (int i = 0; i < 2; i++) {
+            try {
+                cache.getPrivateKey("tenant");
+                pass = false;
+            } catch (InvalidKeyException e) {
+                //Expected
+            }
+        }
+
+        pass = pass && sourceLoads.get() == 2 && cache.getLoadFailures() == 2 && cache.size() == 0;
+
+        if (debug) {
+            System.out.println("Load failures: " + cache.getLoadFailures() + ", pass: " + pass);
+        }
+
+        result(pass);
+    }
+
+    //An error in a load fails the threads waiting on it, the next get loads again
+    public static void testLoadError(Keypair keypair, boolean debug) throws Exception {
+        AtomicInteger sourceLoads = new AtomicInteger();
+        CountDownLatch loadStarted = new CountDownLatch(1);
+
+        KeyCache cache = new KeyCache(id -> {
+            if (sourceLoads.incrementAndGet() > 1) {
+                return keypair.getPrivateKey();
+            }
+
+            loadStarted.countDown();
+
+            try {
+                Thread.sleep(300);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            throw new AssertionError("Broken source");
+        }, 10);
+
+        Throwable[] errors = new Throwable[2];
+        List<Thread> started = new ArrayList<>();
+
+        for (int i = 0; i < errors.length; i++) {
+            final int index = i;
+            Thread thread = new Thread(() -> {
+                try {
+                    cache.getPrivateKey("tenant");
+                } catch (Throwable t) {
+                    errors[index] = t;
+                }
+            });
+            thread.setDaemon(true);
+            thread.start();
+            started.add(thread);
+
+            //The second thread waits on the load of the first
+            loadStarted.await();
+        }
+
+        boolean pass = true;
+
+        for (Thread thread : started) {
+            thread.join(3000);
+            pass = pass && !thread.isAlive();
+        }
+
+        pass = pass && errors[0] instanceof AssertionError
+                && errors[1] instanceof AssertionError
+                && sourceLoads.get() == 1
+                && cache.getLoadFailures() == 1
+                && cache.getPrivateKey("tenant") != null
+                && sourceLoads.get() == 2;
+
+        if (debug) {
+            System.out.println("Load error: " + pass);
+        }
+
+        result(pass);
+    }
+
+    private static void result(boolean pass) {
+        if (pass) {
+            success++;
+        } else {
+            failed++;
+        }
+    }
+
+}
@@ -0,0 +1,124 @@
+package tests;
+
+import com.captainredbeard.xor.*;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.security.KeyFactory;
+import java.security.KeyPairGenerator;
+import java.security.interfaces.RSAPrivateCrtKey;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.List;
+
+/**
+ * @author captain-redbeard
+ * @version 1.00
+ * @since 17/10/26
+ */
+public class TestKeyEncoding {
+    private static int success;
+    private static int failed;
+
+    public static void main(String[] args) throws Exception {
+        final boolean debug = true;
+
+        RSA rsa = new RSA();
+        Keypair keypair = rsa.generateKeypair(rsa.MIN_KEY_LENGTH);
+        Keypair multiPrime = rsa.generateKeypair(rsa.MIN_KEY_LENGTH, 3);
+
+        testExport(keypair, debug);
+        testImport(rsa.getOAEP(), debug);
+        testRoundTrip(keypair, rsa.getOAEP(), debug);
+        testRoundTrip(multiPrime, rsa.getOAEP(), debug);
+        testBundle(new Keypair[]{keypair, multiPrime}, rsa.getOAEP(), debug);
+
+        System.out.println();
+        System.out.println("-- Test Results --");
+        System.out.println("Tests ran: \t\t5");
+        System.out.println("Failed: \t\t" + failed);
+        System.out.println("Success: \t\t" + success);
+        System.out.println("Overall pass: \t" + (success == 5));
+    }
+
+    //The JDK reads our PKCS#8 and X.509 encodings
+    public static void testExport(Keypair keypair, boolean debug) throws Exception {
+        KeyFactory factory = KeyFactory.getInstance("RSA");
+        RSAPrivateCrtKey privateKey = (RSAPrivateCrtKey) factory.generatePrivate(
+                new PKCS8EncodedKeySpec(KeyEncoding.encodePrivateKeyInfo(keypair.getPrivateKey())));
+        RSAPublicKey publicKey = (RSAPublicKey) factory.generatePublic(
+                new X509EncodedKeySpec(KeyEncoding.encodeSubjectPublicKeyInfo(keypair.getPublicKey())));
+
+        boolean pass = privateKey.getModulus().equals(keypair.getPrivateKey().modulus)
+                && privateKey.getPrivateExponent().equals(keypair.getPrivateKey().privateExponent)
+                && privateKey.getCrtCoefficient().equals(keypair.getPrivateKey().getQinv())
+                && publicKey.getPublicExponent().equals(keypair.getPublicKey().publicExponent);
+
+        result("Export", pass, debug);
+    }
+
+    //We read the JDK's PKCS#8 and X.509 encodings
+    public static void testImport(OAEP oaep, boolean debug) throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        java.security.KeyPair jdk = generator.generateKeyPair();
+
+        PrivateKey privateKey = KeyEncoding.decodePrivateKeyInfo(ByteBuffer.wrap(jdk.getPrivate().getEncoded()), oaep);
+        PublicKey publicKey = KeyEncoding.decodeSubjectPublicKeyInfo(ByteBuffer.wrap(jdk.getPublic().getEncoded()), oaep);
+
+        result("Import", roundTrip(publicKey, privateKey), debug);
+    }
+
+    public static void testRoundTrip(Keypair keypair, OAEP oaep, boolean debug) throws Exception {
+        PrivateKey pkcs1 = KeyEncoding.decodeRSAPrivateKey(
+                ByteBuffer.wrap(KeyEncoding.encodeRSAPrivateKey(keypair.getPrivateKey())), oaep);
+        PublicKey publicKey = KeyEncoding.decodeRSAPublicKey(
+                ByteBuffer.wrap(KeyEncoding.encodeRSAPublicKey(keypair.getPublicKey())), oaep);
+        PrivateKey pem = KeyEncoding.decodePrivateKey(
+                PEM.decode(KeyEncoding.toPEM(keypair.getPrivateKey())).get(0), oaep);
+
+        boolean pass = roundTrip(publicKey, pkcs1)
+                && roundTrip(keypair.getPublicKey(), pem)
+                && pkcs1.getOtherPrimeInfos().length == keypair.getPrivateKey().getOtherPrimeInfos().length;
+
+        result("Round trip, primes " + (2 + pkcs1.getOtherPrimeInfos().length), pass, debug);
+    }
+
+    public static void testBundle(Keypair[] keypairs, OAEP oaep, boolean debug) throws Exception {
+        StringBuilder bundle = new StringBuilder("Keys for testing\n");
+
+        for (Keypair keypair : keypairs) {
+            bundle.append(KeyEncoding.toPEM(keypair.getPrivateKey()));
+            bundle.append(PEM.encode(PEM.RSA_PUBLIC_KEY, KeyEncoding.encodeRSAPublicKey(keypair.getPublicKey())));
+        }
+
+        List<PrivateKey> privateKeys = KeyEncoding.decodePrivateKeys(bundle.toString(), oaep);
+        List<PublicKey> publicKeys = KeyEncoding.decodePublicKeys(bundle.toString(), oaep);
+        boolean pass = privateKeys.size() == keypairs.length && publicKeys.size() == keypairs.length;
+
+        for (int i = 0; i < keypairs.length && pass; i++) {
+            pass = roundTrip(publicKeys.get(i), privateKeys.get(i));
+        }
+
+        result("Bundle", pass, debug);
+    }
+
+    private static boolean roundTrip(PublicKey publicKey, PrivateKey privateKey) {
+        BigInteger message = new BigInteger("Hello World!".getBytes());
+        return message.equals(privateKey.decode(publicKey.encode(message)));
+    }
+
+    private static void result(String name, boolean pass, boolean debug) {
+        if (debug) {
+            System.out.println(name + ": " + pass);
+        }
+
+        if (pass) {
+            success++;
+        } else {
+            failed++;
+        }
+    }
+
+}
@@ -0,0 +1,185 @@
+package tests;
+
+import com.captainredbeard.xor.*;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.InvalidKeyException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * @author captain-redbeard
+ * @version 1.00
+ * @since 17/10/26
+ */
+public class TestKeyStore {
+    private static int success;
+    private static int failed;
+
+    public static void main(String[] args) throws Exception {
+        final int keys = 100;
+        final boolean debug = true;
+
+        RSA rsa = new RSA();
+        Keypair[] keypairs = {
+                rsa.generateKeypair(rsa.MIN_KEY_LENGTH),
+                rsa.generateKeypair(rsa.MIN_KEY_LENGTH, 3)
+        };
+
+        testSerializer(keypairs, rsa.getOAEP(), debug);
+        testKeyStore(keypairs, keys, rsa.getOAEP(), debug);
+        testCorrupt(keypairs[0], rsa.getOAEP(), debug);
+
+        System.out.println();
+        System.out.println("-- Test Results --");
+        System.out.println("Tests ran: \t\t" + (keypairs.length + 3));
+        System.out.println("Failed: \t\t" + failed);
+        System.out.println("Success: \t\t" + success);
+        System.out.println("Overall pass: \t" + (success == (keypairs.length + 3)));
+    }
+
+    public static void testSerializer(Keypair[] keypairs, OAEP oaep, boolean debug) {
+        for (Keypair keypair : keypairs) {
+            boolean pass;
+
+            try {
+                byte[] encoded = KeySerializer.encode(keypair);
+                PrivateKey privateKey = KeySerializer.decodePrivateKey(ByteBuffer.wrap(encoded), oaep);
+                PublicKey publicKey = KeySerializer.decodePublicKey(
+                        ByteBuffer.wrap(KeySerializer.encode(keypair.getPublicKey())), oaep);
+
+                pass = roundTrip(publicKey, privateKey)
+                        && roundTrip(keypair.getPublicKey(), privateKey)
+                        && privateKey.getOtherPrimeInfos().length
+                        == keypair.getPrivateKey().getOtherPrimeInfos().length;
+
+                if (debug) {
+                    System.out.println("Encoded key length: " + encoded.length + ", pass: " + pass);
+                }
+            } catch (InvalidKeyException e) {
+                e.printStackTrace();
+                pass = false;
+            }
+
+            if (pass) {
+                success++;
+            } else {
+                failed++;
+            }
+        }
+
+        //Truncated keys are rejected
+        byte[] encoded = KeySerializer.encode(keypairs[0]);
+        boolean rejected;
+
+        try {
+            KeySerializer.decodePrivateKey(ByteBuffer.wrap(encoded, 0, encoded.length / 2).slice(), oaep);
+            rejected = false;
+        } catch (InvalidKeyException e) {
+            rejected = true;
+        }
+
+        if (rejected) {
+            success++;
+        } else {
+            failed++;
+        }
+    }
+
+    public static void testKeyStore(Keypair[] keypairs, int keys, OAEP oaep, boolean debug) throws Exception {
+        Map<String, Keypair> entries = new LinkedHashMap<>();
+
+        for (int i = 0; i < keys; i++) {
+            entries.put("key-" + i, keypairs[i % keypairs.length]);
+        }
+
+        Path path = Files.createTempFile("keystore", ".xks");
+        boolean pass = true;
+
+        try {
+            KeyStoreFile.write(path, entries);
+
+            try (KeyStoreFile keyStore = KeyStoreFile.open(path, oaep)) {
+                pass = keyStore.size() == keys && !keyStore.contains("missing");
+
+                for (int i = 0; i < keys && pass; i++) {
+                    Keypair keypair = keyStore.getKeypair("key-" + i);
+                    pass = keypair != null
+                            && keypair.getPublicKey().modulus.equals(keypairs[i % keypairs.length].getPublicKey().modulus)
+                            && roundTrip(keyStore.getPublicKey("key-" + i), keypair.getPrivateKey());
+                }
+
+                if (debug) {
+                    System.out.println("Keystore size: " + Files.size(path) + " bytes, keys: " + keyStore.size());
+                }
+            }
+        } finally {
+            Files.deleteIfExists(path);
+        }
+
+        if (pass) {
+            success++;
+        } else {
+            failed++;
+        }
+    }
+
+    //Records running past the end of the file are rejected as invalid keys
+    public static void testCorrupt(Keypair keypair, OAEP oaep, boolean debug) throws Exception {
+        Map<String, Keypair> entries = new LinkedHashMap<>();
+        entries.put("key", keypair);
+
+        Path path = Files.createTempFile("keystore", ".xks");
+        boolean pass = true;
+
+        try {
+            KeyStoreFile.write(path, entries);
+            byte[] file = Files.readAllBytes(path);
+            int offset = (int) ByteBuffer.wrap(file).getLong(12 + 8);
+
+            //Record offset past the end
+            byte[] badOffset = file.clone();
+            ByteBuffer.wrap(badOffset).putLong(12 + 8, file.length);
+
+            //Key length past the end
+            byte[] badLength = file.clone();
+            ByteBuffer.wrap(badLength).putInt(offset + 2 + 3, Integer.MAX_VALUE);
+
+            //Truncated inside the key
+            byte[] truncated = Arrays.copyOf(file, file.length - 10);
+
+            for (byte[] corrupt : new byte[][]{badOffset, badLength, truncated}) {
+                Files.write(path, corrupt);
+
+                try (KeyStoreFile keyStore = KeyStoreFile.open(path, oaep)) {
+                    keyStore.getPrivateKey("key");
+                    pass = false;
+                } catch (InvalidKeyException e) {
+                    //Expected
+                }
+            }
+        } finally {
+            Files.deleteIfExists(path);
+        }
+
+        if (debug) {
+            System.out.println("Corrupt keystore rejected: " + pass);
+        }
+
+        if (pass) {
+            success++;
+        } else {
+            failed++;
+        }
+    }
+
+    private static boolean roundTrip(PublicKey publicKey, PrivateKey privateKey) {
+        BigInteger message = new BigInteger("Hello World!".getBytes());
+        return message.equals(privateKey.decode(publicKey.encode(message)));
+    }
+
+}
@@ -0,0 +1,71 @@
+package tests;
+
+import com.captainredbeard.xor.*;
+
+import java.math.BigInteger;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author captain-redbeard
+ * @version 1.00
+ * @since 17/10/26
+ */
+public class TestKeypairPool {
+    private static int success;
+    private static int failed;
+
+    public static void main(String[] args) throws Exception {
+        final int tests = 10;
+        final boolean debug = true;
+
+        try (KeypairPool pool = new KeypairPool(new RSA(), 4, 1, 2)) {
+            pool.warm(2048);
+
+            //Wait for the pool to fill
+            while (pool.size(2048) < 4) {
+                Thread.sleep(50);
+            }
+
+            for (int i = 0; i < tests; i++) {
+                test(pool, debug);
+            }
+
+            System.out.println();
+            System.out.println("-- Pool --");
+            System.out.println("Hits: \t\t\t" + pool.getHits());
+            System.out.println("Misses: \t\t" + pool.getMisses());
+            System.out.println("Refills: \t\t" + pool.getRefills());
+            System.out.println("Refill time: \t" + pool.getAverageRefillTime(TimeUnit.MILLISECONDS) + "ms");
+
+            if (pool.getHits() + pool.getMisses() == tests && pool.getHits() > 0) {
+                success++;
+            } else {
+                failed++;
+            }
+        }
+
+        System.out.println();
+        System.out.println("-- Test Results --");
+        System.out.println("Tests ran: \t\t" + (tests + 1));
+        System.out.println("Failed: \t\t" + failed);
+        System.out.println("Success: \t\t" + success);
+        System.out.println("Overall pass: \t" + (success == (tests + 1)));
+    }
+
+    public static void test(KeypairPool pool, boolean debug) throws Exception {
+        Keypair keypair = pool.take(2048);
+        BigInteger message = new BigInteger("Hello World!".getBytes());
+        BigInteger decoded = keypair.getPrivateKey().decode(keypair.getPublicKey().encode(message));
+
+        if (debug) {
+            System.out.println("Ready: " + pool.size(2048) + ", Decoded: " + new String(decoded.toByteArray()));
+        }
+
+        if (message.equals(decoded)) {
+            success++;
+        } else {
+            failed++;
+        }
+    }
+
+}
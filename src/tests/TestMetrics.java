@@ -0,0 +1,156 @@
+package tests;
+
+import com.captainredbeard.xor.*;
+
+import java.math.BigInteger;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author captain-redbeard
+ * @version 1.00
+ * @since 17/10/26
+ */
+public class TestMetrics {
+    private static int success;
+    private static int failed;
+
+    public static void main(String[] args) throws Exception {
+        final int tests = 10;
+        final boolean debug = true;
+
+        testHistogram(debug);
+
+        Metrics metrics = new Metrics();
+        RSA rsa = new RSA().setMetrics(metrics);
+        Keypair keypair = rsa.generateKeypair(rsa.MIN_KEY_LENGTH);
+        PublicKey publicKey = keypair.getPublicKey();
+        PrivateKey privateKey = keypair.getPrivateKey();
+
+        for (int i = 0; i < tests; i++) {
+            test(publicKey, privateKey, debug);
+        }
+
+        testSnapshot(metrics, tests, debug);
+
+        System.out.println();
+        System.out.println("-- Test Results --");
+        System.out.println("Tests ran: \t\t" + (tests + 2));
+        System.out.println("Failed: \t\t" + failed);
+        System.out.println("Success: \t\t" + success);
+        System.out.println("Overall pass: \t" + (success == (tests + 2)));
+    }
+
+    public static void testHistogram(boolean debug) {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        //1 to 1000 microseconds
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000L);
+        }
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        double p50 = snapshot.getPercentile(50, TimeUnit.MICROSECONDS);
+        double p99 = snapshot.getPercentile(99, TimeUnit.MICROSECONDS);
+
+        //Buckets are within about 3% of the value
+        boolean pass = snapshot.getCount() == 1000
+                && Math.abs(p50 - 500) <= 500 * 0.04
+                && Math.abs(p99 - 990) <= 990 * 0.04
+                && snapshot.getMax(TimeUnit.MICROSECONDS) == 1000
+                && snapshot.getMean(TimeUnit.MICROSECONDS) == 500.5;
+
+        histogram.reset();
+        pass = pass && histogram.getCount() == 0 && histogram.snapshot().getPercentile(50, TimeUnit.NANOSECONDS) == 0;
+
+        if (debug) {
+            System.out.println("Histogram p50: " + p50 + "us, p99: " + p99 + "us");
+        }
+
+        if (pass) {
+            success++;
+        } else {
+            failed++;
+        }
+    }
+
+    public static void test(PublicKey publicKey, PrivateKey privateKey, boolean debug) throws Exception {
+        BigInteger message = new BigInteger("Hello World!".getBytes());
+        BigInteger decoded = privateKey.decode(publicKey.encode(message));
+        boolean verified = publicKey.verify(privateKey.sign(message), message);
+
+        byte[] bytes = "Hello World!".getBytes();
+        byte[] decrypted = privateKey.decrypt(publicKey.encrypt(bytes));
+
+        Signer signer = privateKey.newSigner();
+        signer.update(bytes);
+        Verifier verifier = publicKey.newVerifier();
+        verifier.update(bytes);
+        boolean pssVerified = verifier.verify(signer.sign());
+
+        if (debug) {
+            System.out.println("Decoded: " + new String(decoded.toByteArray()) + ", Verified: " + verified);
+        }
+
+        if (message.equals(decoded) && verified && new String(decrypted).equals("Hello World!") && pssVerified) {
+            success++;
+        } else {
+            failed++;
+        }
+    }
+
+    public static void testSnapshot(Metrics metrics, int tests, boolean debug) {
+        Map<Integer, Map<Metrics.Operation, LatencyHistogram.Snapshot>> snapshot = metrics.snapshot();
+        Map<Metrics.Operation, LatencyHistogram.Snapshot> operations = snapshot.get(2048);
+
+        //Each test signs twice, decodes, decrypts and signs with CRT
+        boolean pass = snapshot.size() == 1
+                && operations != null
+                && count(operations, Metrics.Operation.KEYGEN) == 1
+                && count(operations, Metrics.Operation.ENCODE) == tests
+                && count(operations, Metrics.Operation.DECODE) == tests
+                && count(operations, Metrics.Operation.ENCRYPT) == tests
+                && count(operations, Metrics.Operation.DECRYPT) == tests
+                && count(operations, Metrics.Operation.PAD) == 2 * tests
+                && count(operations, Metrics.Operation.UNPAD) == 2 * tests
+                && count(operations, Metrics.Operation.SIGN) == 2 * tests
+                && count(operations, Metrics.Operation.VERIFY) == 2 * tests
+                && count(operations, Metrics.Operation.DECODE_CRT) == 4 * tests;
+
+        String export = metrics.export();
+        pass = pass && export.contains("xor_rsa_operation_seconds_count{operation=\"decode_crt\",key_length=\"2048\"} "
+                + 4 * tests);
+
+        //A key without metrics records nothing
+        metrics.reset();
+        RSA rsa = new RSA();
+        BigInteger message = BigInteger.valueOf(42);
+
+        try {
+            Keypair keypair = rsa.generateKeypair(rsa.MIN_KEY_LENGTH);
+            keypair.getPrivateKey().decode(keypair.getPublicKey().encode(message));
+        } catch (Exception e) {
+            e.printStackTrace();
+            pass = false;
+        }
+
+        pass = pass && metrics.snapshot().isEmpty();
+
+        if (debug) {
+            System.out.println();
+            System.out.print(export);
+        }
+
+        if (pass) {
+            success++;
+        } else {
+            failed++;
+        }
+    }
+
+    private static long count(Map<Metrics.Operation, LatencyHistogram.Snapshot> operations, Metrics.Operation operation) {
+        LatencyHistogram.Snapshot snapshot = operations.get(operation);
+        return snapshot == null ? 0 : snapshot.getCount();
+    }
+
+}
@@ -3,6 +3,7 @@ package tests;
 import com.captainredbeard.xor.OAEP;
 
 import java.math.BigInteger;
+import java.util.Arrays;
 
 /**
  * @author captain-redbeard
@@ -20,14 +21,15 @@ public class TestOAEP {
 
         for (int i = 0; i < tests; i++) {
             test(subTests, debug);
+            testBuffers(subTests, debug);
         }
 
         System.out.println();
         System.out.println("-- Test Results --");
-        System.out.println("Tests ran: \t\t" + (tests * subTests));
+        System.out.println("Tests ran: \t\t" + (tests * subTests * 2));
         System.out.println("Failed: \t\t" + failed);
         System.out.println("Success: \t\t" + success);
-        System.out.println("Overall pass: \t" + (success == (tests * subTests)));
+        System.out.println("Overall pass: \t" + (success == (tests * subTests * 2)));
     }
 
     public static void test(int subTests, boolean debug) {
@@ -53,4 +55,28 @@ public class TestOAEP {
         }
     }
 
+    public static void testBuffers(int subTests, boolean debug) {
+        OAEP oaep = new OAEP();
+        byte[] rawMessage = {0x01, 0x00, 0x01, 0x7F, (byte) 0x80, (byte) 0xFF, 0x01};
+        byte[] encoded = new byte[256 + 8];
+        byte[] decoded = new byte[oaep.getMaxMessageLength(256)];
+
+        for (int i = 0; i < subTests; i++) {
+            oaep.encode(rawMessage, 0, rawMessage.length, encoded, 8, 256);
+            int length = oaep.decode(encoded, 8, 256, decoded, 0);
+
+            if (debug) {
+                System.out.println();
+                System.out.println("Raw: " + Arrays.toString(rawMessage));
+                System.out.println("Decoded: " + Arrays.toString(Arrays.copyOf(decoded, Math.max(length, 0))));
+            }
+
+            if (length == rawMessage.length && Arrays.equals(rawMessage, Arrays.copyOf(decoded, length))) {
+                success++;
+            } else {
+                failed++;
+            }
+        }
+    }
+
 }
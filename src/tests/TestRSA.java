@@ -2,8 +2,15 @@ package tests;
 
 import com.captainredbeard.xor.*;
 
+import javax.crypto.BadPaddingException;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
 import java.security.InvalidKeyException;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
 
 /**
  * @author captain-redbeard
@@ -21,14 +28,16 @@ public class TestRSA {
 
         for (int i = 0; i < tests; i++) {
             test(subTests, debug);
+            testAsync(subTests, debug);
+            testMultiPrime(subTests, debug);
         }
 
         System.out.println();
         System.out.println("-- Test Results --");
-        System.out.println("Tests ran: \t\t" + (tests * subTests));
+        System.out.println("Tests ran: \t\t" + (tests * (subTests + 6) * 3));
         System.out.println("Failed: \t\t" + failed);
         System.out.println("Success: \t\t" + success);
-        System.out.println("Overall pass: \t" + (success == (tests * subTests)));
+        System.out.println("Overall pass: \t" + (success == (tests * (subTests + 6) * 3)));
     }
 
     public static void test(int subTests, boolean debug) {
@@ -41,6 +50,36 @@ public class TestRSA {
             e1.printStackTrace();
         }
 
+        test(keypair, subTests, debug);
+    }
+
+    public static void testAsync(int subTests, boolean debug) {
+        RSA rsa = new RSA();
+        Keypair keypair = null;
+
+        try {
+            keypair = rsa.generateKeypairAsync(rsa.MIN_KEY_LENGTH, ForkJoinPool.commonPool(), 2).get();
+        } catch (InterruptedException | ExecutionException e1) {
+            e1.printStackTrace();
+        }
+
+        test(keypair, subTests, debug);
+    }
+
+    public static void testMultiPrime(int subTests, boolean debug) {
+        RSA rsa = new RSA();
+        Keypair keypair = null;
+
+        try {
+            keypair = rsa.generateKeypair(rsa.MIN_KEY_LENGTH, 3);
+        } catch (InvalidKeyException e1) {
+            e1.printStackTrace();
+        }
+
+        test(keypair, subTests, debug);
+    }
+
+    public static void test(Keypair keypair, int subTests, boolean debug) {
         if(keypair != null) {
             long startEncode, endEncode, startDecode, endDecode, startSign, endSign;
 
@@ -102,9 +141,241 @@ public class TestRSA {
                     failed++;
                 }
             }
+
+            testBatch(publicKey, privateKey, subTests, debug);
+            testBytes(publicKey, privateKey, debug);
+            testMontgomery(publicKey, privateKey, debug);
+            testParallelCRT(publicKey, privateKey, debug);
+            testBlinding(publicKey, privateKey, debug);
+            testFaultCheck(privateKey, debug);
         } else {
             System.out.println("Failed to create Keypair.");
         }
     }
 
+    public static void testBatch(PublicKey publicKey, PrivateKey privateKey, int subTests, boolean debug) {
+        //Every third cipher is invalid
+        BigInteger[] ciphers = new BigInteger[subTests];
+
+        for (int i = 0; i < subTests; i++) {
+            ciphers[i] = i % 3 == 2
+                    ? BigInteger.valueOf(i)
+                    : publicKey.encode(BigInteger.valueOf(1000 + i));
+        }
+
+        BatchResult<BigInteger> decoded = privateKey.decodeBatch(ciphers, ForkJoinPool.commonPool());
+        boolean pass = decoded.size() == subTests;
+
+        for (int i = 0; i < subTests && pass; i++) {
+            pass = i % 3 == 2
+                    ? !decoded.isSuccess(i) && decoded.getFailure(i) != null
+                    : decoded.isSuccess(i) && BigInteger.valueOf(1000 + i).equals(decoded.get(i));
+        }
+
+        //Every third signature is for a different message
+        BigInteger[] messages = new BigInteger[subTests];
+        BigInteger[] signatures = new BigInteger[subTests];
+
+        for (int i = 0; i < subTests; i++) {
+            messages[i] = BigInteger.valueOf(1000 + i);
+            signatures[i] = privateKey.sign(i % 3 == 2 ? BigInteger.ONE : messages[i]);
+        }
+
+        BitSet verified = publicKey.verifyBatch(signatures, messages, ForkJoinPool.commonPool());
+
+        for (int i = 0; i < subTests && pass; i++) {
+            pass = verified.get(i) == (i % 3 != 2);
+        }
+
+        //A null signature or message fails its own bit only
+        signatures[0] = null;
+        messages[1] = null;
+        verified = publicKey.verifyBatch(signatures, messages, ForkJoinPool.commonPool());
+
+        for (int i = 0; i < subTests && pass; i++) {
+            pass = verified.get(i) == (i > 1 && i % 3 != 2);
+        }
+
+        if (debug) {
+            System.out.println("Batch decoded: " + decoded.size() + ", failures: " + decoded.getFailureCount());
+            System.out.println("Batch verified: " + verified);
+        }
+
+        if (pass) {
+            success++;
+        } else {
+            failed++;
+        }
+    }
+
+    //Montgomery CRT matches CRT
+    public static void testMontgomery(PublicKey publicKey, PrivateKey privateKey, boolean debug) {
+        BigInteger cipher = publicKey.encode(BigInteger.valueOf(1000));
+        boolean pass = privateKey.decodeCRTMontgomery(cipher).equals(privateKey.decodeCRT(cipher));
+
+        //Decode, sign and decrypt use it once enabled, blinded and unblinded, in parallel or not
+        PrivateKey montgomery = new Keypair(privateKey).getPrivateKey().setMontgomeryCRT(true);
+        byte[] message = "Hello World!".getBytes();
+
+        for (int i = 0; i < 4 && pass; i++) {
+            montgomery.setBlinding(i % 2 == 0).setParallelCRT(i >= 2 ? ForkJoinPool.commonPool() : null, 0);
+
+            try {
+                pass = BigInteger.valueOf(1000).equals(montgomery.decode(cipher))
+                        && publicKey.verify(montgomery.sign(BigInteger.ONE), BigInteger.ONE)
+                        && Arrays.equals(message, montgomery.decrypt(publicKey.encrypt(message)));
+            } catch (BadPaddingException e) {
+                pass = false;
+            }
+        }
+
+        if (debug) {
+            System.out.println("Montgomery CRT: " + pass);
+        }
+
+        if (pass) {
+            success++;
+        } else {
+            failed++;
+        }
+    }
+
+    //Parallel CRT matches CRT
+    public static void testParallelCRT(PublicKey publicKey, PrivateKey privateKey, boolean debug) {
+        BigInteger cipher = publicKey.encode(BigInteger.valueOf(1000));
+        boolean pass = privateKey.decodeCRTParallel(cipher, ForkJoinPool.commonPool())
+                .equals(privateKey.decodeCRT(cipher));
+
+        //Decode with the shared executor, at and just below the threshold
+        PrivateKey parallel = new Keypair(privateKey).getPrivateKey();
+        int bits = parallel.modulus.bitLength();
+        pass = pass && BigInteger.valueOf(1000).equals(
+                parallel.setParallelCRT(PrivateKey.getParallelCRTExecutor(), bits).decode(cipher))
+                && BigInteger.valueOf(1000).equals(
+                parallel.setParallelCRT(PrivateKey.getParallelCRTExecutor(), bits + 1).decode(cipher));
+
+        if (debug) {
+            System.out.println("Parallel CRT: " + pass);
+        }
+
+        if (pass) {
+            success++;
+        } else {
+            failed++;
+        }
+    }
+
+    //Blinded CRT matches CRT, across pair refreshes
+    public static void testBlinding(PublicKey publicKey, PrivateKey privateKey, boolean debug) {
+        BigInteger cipher = publicKey.encode(BigInteger.valueOf(1000));
+        BigInteger expected = privateKey.decodeCRT(cipher);
+        boolean pass = true;
+
+        for (int i = 0; i <= PrivateKey.BLINDING_REFRESH && pass; i++) {
+            pass = privateKey.decodeCRTBlinded(cipher).equals(expected);
+        }
+
+        //Concurrent calls share the key's pool of pairs, none is used by two at once
+        pass = pass && IntStream.range(0, 4 * PrivateKey.BLINDING_REFRESH)
+                .parallel()
+                .allMatch(i -> privateKey.decodeCRTBlinded(cipher).equals(expected));
+
+        if (debug) {
+            System.out.println("Blinded CRT: " + pass);
+        }
+
+        if (pass) {
+            success++;
+        } else {
+            failed++;
+        }
+    }
+
+    //A key with a faulty CRT exponent is caught by the fault check, the result is not released
+    public static void testFaultCheck(PrivateKey privateKey, boolean debug) {
+        PrivateKey faulty = new PrivateKey(
+                privateKey.modulus,
+                privateKey.publicExponent,
+                privateKey.privateExponent,
+                privateKey.getP(),
+                privateKey.getQ(),
+                privateKey.getDp().add(BigInteger.ONE),
+                privateKey.getDq(),
+                privateKey.getQinv(),
+                privateKey.getOtherPrimeInfos(),
+                privateKey.getOAEP()
+        ).setFaultCheck(true);
+        boolean pass;
+
+        try {
+            faulty.sign(BigInteger.valueOf(1000));
+            pass = false;
+        } catch (IllegalStateException e) {
+            pass = faulty.getFaultChecks() == 1 && faulty.getFaultsDetected() == 1;
+        }
+
+        //A correct key passes the check
+        PrivateKey checked = new Keypair(privateKey).getPrivateKey().setFaultCheck(true);
+        pass = pass && checked.getPublicKey().verify(checked.sign(BigInteger.valueOf(1000)), BigInteger.valueOf(1000))
+                && checked.getFaultChecks() == 1
+                && checked.getFaultsDetected() == 0;
+
+        if (debug) {
+            System.out.println("Fault check: " + pass);
+        }
+
+        if (pass) {
+            success++;
+        } else {
+            failed++;
+        }
+    }
+
+    public static void testBytes(PublicKey publicKey, PrivateKey privateKey, boolean debug) {
+        //Leading zeros and high bytes are kept
+        byte[] message = {0x00, 0x00, (byte) 0xFF, (byte) 0x80, 0x01, 0x7F};
+        boolean pass;
+
+        try {
+            byte[] cipher = publicKey.encrypt(message);
+            pass = cipher.length == publicKey.getModulusLength()
+                    && Arrays.equals(message, privateKey.decrypt(cipher));
+
+            //Direct buffers
+            ByteBuffer in = ByteBuffer.allocateDirect(message.length).put(message).flip();
+            ByteBuffer c = ByteBuffer.allocateDirect(publicKey.getModulusLength());
+            ByteBuffer out = ByteBuffer.allocate(message.length);
+            pass = pass && publicKey.encrypt(in, c) == publicKey.getModulusLength();
+            pass = pass && privateKey.decrypt(c.flip(), out) == message.length && Arrays.equals(message, out.array());
+
+            //A modified cipher text is rejected
+            cipher[cipher.length / 2] ^= 1;
+
+            try {
+                privateKey.decrypt(cipher);
+                pass = false;
+            } catch (BadPaddingException e) {
+                //Expected
+            }
+
+            //Strings survive the round trip
+            RSA rsa = new RSA();
+            String text = "Hello World! \u00e9\u4e16";
+            pass = pass && text.equals(rsa.decrypt(rsa.encrypt(text, publicKey), privateKey));
+        } catch (BadPaddingException e) {
+            e.printStackTrace();
+            pass = false;
+        }
+
+        if (debug) {
+            System.out.println("Byte encrypt/decrypt: " + pass);
+        }
+
+        if (pass) {
+            success++;
+        } else {
+            failed++;
+        }
+    }
+
 }
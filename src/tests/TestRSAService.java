@@ -0,0 +1,292 @@
+package tests;
+
+import com.captainredbeard.xor.*;
+
+import javax.crypto.BadPaddingException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author captain-redbeard
+ * @version 1.00
+ * @since 17/10/26
+ */
+public class TestRSAService {
+    private static int success;
+    private static int failed;
+
+    public static void main(String[] args) throws Exception {
+        final int clients = 8;
+        final int requests = 20;
+        final boolean debug = true;
+
+        RSA rsa = new RSA();
+        Keypair[] keypairs = {
+                rsa.generateKeypair(rsa.MIN_KEY_LENGTH),
+                rsa.generateKeypair(rsa.MIN_KEY_LENGTH, 3)
+        };
+
+        try (RSAService service = new RSAService(2, 64, 8, 10, TimeUnit.SECONDS)) {
+            test(service, keypairs, clients, requests, debug);
+        }
+
+        testInvalid(keypairs[0], debug);
+        testBackpressure(keypairs[0], debug);
+        testError(keypairs[0], debug);
+        testClose(keypairs[0], debug);
+
+        System.out.println();
+        System.out.println("-- Test Results --");
+        System.out.println("Tests ran: \t\t" + (clients + 4));
+        System.out.println("Failed: \t\t" + failed);
+        System.out.println("Success: \t\t" + success);
+        System.out.println("Overall pass: \t" + (success == (clients + 4)));
+    }
+
+    //Clients decrypt, sign and verify concurrently with both keys
+    public static void test(RSAService service, Keypair[] keypairs, int clients, int requests, boolean debug)
+            throws Exception {
+        PublicKey[] publicKeys = new PublicKey[keypairs.length];
+        PrivateKey[] privateKeys = new PrivateKey[keypairs.length];
+
+        for (int i = 0; i < keypairs.length; i++) {
+            publicKeys[i] = keypairs[i].getPublicKey();
+            privateKeys[i] = keypairs[i].getPrivateKey();
+        }
+
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+
+        for (int c = 0; c < clients; c++) {
+            final int client = c;
+            Thread thread = new Thread(() -> {
+                boolean pass = true;
+
+                try {
+                    start.await();
+                    List<CompletableFuture<Boolean>> results = new ArrayList<>();
+
+                    for (int i = 0; i < requests; i++) {
+                        int k = (client + i) % keypairs.length;
+                        byte[] message = ("Client " + client + " request " + i).getBytes();
+                        byte[] cipher = publicKeys[k].encrypt(message);
+
+                        results.add(service.decrypt(privateKeys[k], cipher)
+                                .thenApply(m -> Arrays.equals(message, m)));
+                        results.add(service.sign(privateKeys[k], message)
+                                .thenCompose(s -> service.verify(publicKeys[k], message, s)));
+                    }
+
+                    for (CompletableFuture<Boolean> result : results) {
+                        pass = pass && result.join();
+                    }
+                } catch (Exception e) {
+                    e.printStackTrace();
+                    pass = false;
+                }
+
+                if (debug) {
+                    System.out.println("Client " + client + ": " + pass);
+                }
+
+                synchronized (TestRSAService.class) {
+                    if (pass) {
+                        success++;
+                    } else {
+                        failed++;
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+
+        start.countDown();
+
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        if (debug) {
+            System.out.println("Submitted: " + service.getSubmitted()
+                    + ", batches: " + service.getBatches()
+                    + ", average batch: " + service.getAverageBatchSize());
+        }
+    }
+
+    //An invalid cipher text fails its own future only
+    public static void testInvalid(Keypair keypair, boolean debug) {
+        boolean pass;
+
+        try (RSAService service = new RSAService()) {
+            byte[] cipher = keypair.getPublicKey().encrypt("Hello World!".getBytes());
+            byte[] modified = cipher.clone();
+            modified[modified.length / 2] ^= 1;
+
+            CompletableFuture<byte[]> invalid = service.decrypt(keypair.getPrivateKey(), modified);
+            CompletableFuture<byte[]> valid = service.decrypt(keypair.getPrivateKey(), cipher);
+
+            try {
+                invalid.join();
+                pass = false;
+            } catch (CompletionException e) {
+                pass = e.getCause() instanceof BadPaddingException;
+            }
+
+            pass = pass && "Hello World!".equals(new String(valid.join()));
+        }
+
+        if (debug) {
+            System.out.println("Invalid cipher: " + pass);
+        }
+
+        if (pass) {
+            success++;
+        } else {
+            failed++;
+        }
+    }
+
+    //An error fails its own future, its queue space is released and the key keeps running
+    public static void testError(Keypair keypair, boolean debug) {
+        PrivateKey privateKey = keypair.getPrivateKey();
+        PrivateKey broken = new PrivateKey(
+                privateKey.modulus,
+                privateKey.publicExponent,
+                privateKey.privateExponent,
+                privateKey.getP(),
+                privateKey.getQ(),
+                privateKey.getDp(),
+                privateKey.getDq(),
+                privateKey.getQinv(),
+                privateKey.getOAEP()
+        ) {
+            @Override
+            public byte[] decrypt(byte[] c) {
+                throw new AssertionError("Broken key");
+            }
+        };
+        byte[] cipher = keypair.getPublicKey().encrypt("Hello World!".getBytes());
+        boolean pass;
+
+        try (RSAService service = new RSAService(1, 1, 1, 2, TimeUnit.SECONDS)) {
+            try {
+                service.decrypt(broken, cipher).get(10, TimeUnit.SECONDS);
+                pass = false;
+            } catch (ExecutionException e) {
+                pass = e.getCause() instanceof AssertionError;
+            }
+
+            //With a capacity of 1 these time out and are rejected if the permit leaked
+            for (int i = 0; i < 2 && pass; i++) {
+                pass = service.decrypt(broken, cipher).handle((m, t) -> t instanceof AssertionError)
+                        .get(10, TimeUnit.SECONDS);
+            }
+
+            pass = pass && service.getRejected() == 0
+                    && "Hello World!".equals(new String(service.decrypt(privateKey, cipher).get(10, TimeUnit.SECONDS)));
+        } catch (Exception e) {
+            e.printStackTrace();
+            pass = false;
+        }
+
+        if (debug) {
+            System.out.println("Error in request: " + pass);
+        }
+
+        if (pass) {
+            success++;
+        } else {
+            failed++;
+        }
+    }
+
+    //Requests queued before close all run, however close falls between batches
+    public static void testClose(Keypair keypair, boolean debug) {
+        byte[] message = "Hello World!".getBytes();
+        byte[] signature = keypair.getPrivateKey().newSigner().update(message).sign();
+        boolean pass = true;
+        int rounds = 0;
+
+        for (; rounds < 50 && pass; rounds++) {
+            List<CompletableFuture<Boolean>> results = new ArrayList<>();
+            RSAService service = new RSAService(1, 64, 1, 10, TimeUnit.SECONDS);
+
+            for (int i = 0; i < 64; i++) {
+                results.add(service.verify(keypair.getPublicKey(), message, signature));
+            }
+
+            service.close();
+
+            try {
+                for (CompletableFuture<Boolean> result : results) {
+                    pass = pass && result.get(10, TimeUnit.SECONDS);
+                }
+            } catch (Exception e) {
+                e.printStackTrace();
+                pass = false;
+            }
+
+            pass = pass && service.getRejected() == 0;
+        }
+
+        if (debug) {
+            System.out.println("Close rounds: " + rounds + ", " + pass);
+        }
+
+        if (pass) {
+            success++;
+        } else {
+            failed++;
+        }
+    }
+
+    //Requests beyond the queue capacity are rejected, the rest complete
+    public static void testBackpressure(Keypair keypair, boolean debug) {
+        PrivateKey privateKey = keypair.getPrivateKey();
+        byte[] cipher = keypair.getPublicKey().encrypt("Hello World!".getBytes());
+        List<CompletableFuture<byte[]>> results = new ArrayList<>();
+        boolean pass = true;
+        int rejected = 0;
+
+        RSAService service = new RSAService(1, 4, 2, 0, TimeUnit.SECONDS);
+
+        for (int i = 0; i < 50; i++) {
+            results.add(service.decrypt(privateKey, cipher));
+        }
+
+        service.close();
+
+        for (CompletableFuture<byte[]> result : results) {
+            try {
+                pass = pass && "Hello World!".equals(new String(result.join()));
+            } catch (CompletionException e) {
+                pass = pass && e.getCause() instanceof RejectedExecutionException;
+                rejected++;
+            }
+        }
+
+        //Closed services reject
+        pass = pass && rejected > 0
+                && rejected == service.getRejected()
+                && service.decrypt(privateKey, cipher).isCompletedExceptionally();
+
+        if (debug) {
+            System.out.println("Backpressure rejected: " + rejected + ", " + pass);
+        }
+
+        if (pass) {
+            success++;
+        } else {
+            failed++;
+        }
+    }
+
+}
@@ -0,0 +1,114 @@
+package tests;
+
+import com.captainredbeard.xor.*;
+
+import java.nio.ByteBuffer;
+import java.security.KeyFactory;
+import java.security.Signature;
+import java.security.spec.MGF1ParameterSpec;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.PSSParameterSpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.Random;
+
+/**
+ * @author captain-redbeard
+ * @version 1.00
+ * @since 17/10/26
+ */
+public class TestSignature {
+    private static int success;
+    private static int failed;
+
+    public static void main(String[] args) throws Exception {
+        final int subTests = 5;
+        final boolean debug = true;
+
+        RSA rsa = new RSA();
+        Keypair[] keypairs = {
+                rsa.generateKeypair(rsa.MIN_KEY_LENGTH),
+                rsa.generateKeypair(rsa.MIN_KEY_LENGTH, 3)
+        };
+
+        for (Keypair keypair : keypairs) {
+            for (int i = 0; i < subTests; i++) {
+                test(keypair, 1000 * i + i, debug);
+            }
+
+            testInterop(keypair, debug);
+        }
+
+        System.out.println();
+        System.out.println("-- Test Results --");
+        System.out.println("Tests ran: \t\t" + (keypairs.length * (subTests + 1)));
+        System.out.println("Failed: \t\t" + failed);
+        System.out.println("Success: \t\t" + success);
+        System.out.println("Overall pass: \t" + (success == (keypairs.length * (subTests + 1))));
+    }
+
+    //Signed in parts, verified in different parts
+    public static void test(Keypair keypair, int length, boolean debug) {
+        byte[] message = new byte[length];
+        new Random(length).nextBytes(message);
+
+        Signer signer = keypair.getPrivateKey().newSigner();
+        Verifier verifier = keypair.getPublicKey().newVerifier();
+
+        signer.update(message, 0, length / 2).update(ByteBuffer.wrap(message, length / 2, length - length / 2));
+        byte[] signature = signer.sign();
+
+        boolean verified = verifier.update(ByteBuffer.wrap(message)).verify(signature);
+
+        //Another message fails, then the verifier is reusable
+        boolean other = verifier.update("Other".getBytes()).verify(signature);
+        boolean reused = verifier.update(message).verify(signature);
+
+        //A modified signature fails
+        signature[signature.length - 1] ^= 1;
+        boolean modified = verifier.update(message).verify(signature);
+
+        boolean pass = verified && !other && reused && !modified;
+
+        if (debug) {
+            System.out.println("Message " + length + " bytes, signature " + signature.length + " bytes: " + pass);
+        }
+
+        if (pass) {
+            success++;
+        } else {
+            failed++;
+        }
+    }
+
+    //The JDK verifies our signatures and we verify the JDK's
+    public static void testInterop(Keypair keypair, boolean debug) throws Exception {
+        byte[] message = "Hello World!".getBytes();
+        KeyFactory factory = KeyFactory.getInstance("RSA");
+        Signature jdk = Signature.getInstance("RSASSA-PSS");
+        jdk.setParameter(new PSSParameterSpec("SHA-512", "MGF1", MGF1ParameterSpec.SHA512, 64, 1));
+
+        jdk.initVerify(factory.generatePublic(
+                new X509EncodedKeySpec(KeyEncoding.encodeSubjectPublicKeyInfo(keypair.getPublicKey()))));
+        jdk.update(message);
+        boolean pass = jdk.verify(keypair.getPrivateKey().newSigner().update(message).sign());
+
+        //The JDK does not support multi-prime private keys
+        if (keypair.getPrivateKey().getOtherPrimeInfos().length == 0) {
+            jdk.initSign(factory.generatePrivate(
+                    new PKCS8EncodedKeySpec(KeyEncoding.encodePrivateKeyInfo(keypair.getPrivateKey()))));
+            jdk.update(message);
+            pass = pass && keypair.getPublicKey().newVerifier().update(message).verify(jdk.sign());
+        }
+
+        if (debug) {
+            System.out.println("JDK interop: " + pass);
+        }
+
+        if (pass) {
+            success++;
+        } else {
+            failed++;
+        }
+    }
+
+}